@@ -0,0 +1,45 @@
+package chatbot.bench;
+
+import chatbot.ChatbotEngine;
+import chatbot.ChatbotModel;
+import chatbot.SessionContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end ChatbotEngine.processInput: analysis, knowledge-base lookup,
+ * response generation, learning, history and analytics
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatbotEngineBenchmark {
+
+    @Param({"greetings", "personal", "unknown"})
+    public String corpus;
+
+    private ChatbotEngine engine;
+    private SessionContext session;
+    private Corpus messages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new ChatbotEngine(new ChatbotModel());
+        messages = Corpus.load(corpus);
+    }
+
+    // A fresh session per iteration keeps history growth comparable between runs
+    @Setup(Level.Iteration)
+    public void newSession() {
+        session = engine.newSession("benchmark");
+    }
+
+    @Benchmark
+    public String processInput() {
+        return engine.processInput(session, messages.next());
+    }
+}
@@ -0,0 +1,63 @@
+package chatbot.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark input corpus loaded from corpus/<name>.txt, cycled message by message
+ */
+final class Corpus {
+
+    private final String[] messages;
+    private int next;
+
+    private Corpus(String[] messages) {
+        this.messages = messages;
+    }
+
+    /**
+     * Load a corpus resource; blank lines and '#' comments are skipped
+     */
+    static Corpus load(String name) {
+        String resource = "corpus/" + name + ".txt";
+        try (InputStream is = Corpus.class.getClassLoader().getResourceAsStream(resource)) {
+            if (is == null) {
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+            }
+            List<String> lines = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+            return new Corpus(lines.toArray(new String[0]));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Next message, wrapping around at the end of the corpus
+     */
+    String next() {
+        String message = messages[next];
+        next = next + 1 == messages.length ? 0 : next + 1;
+        return message;
+    }
+
+    int size() {
+        return messages.length;
+    }
+
+    String get(int index) {
+        return messages[index];
+    }
+}
@@ -0,0 +1,65 @@
+package chatbot.bench;
+
+import chatbot.AnalyzedInput;
+import chatbot.ChatbotEngine.Intent;
+import chatbot.NLPProcessor;
+import chatbot.SentimentScore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NLPProcessor hot paths over short greetings, long personal messages and UNKNOWN traffic
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NLPProcessorBenchmark {
+
+    @Param({"greetings", "personal", "unknown"})
+    public String corpus;
+
+    private NLPProcessor nlpProcessor;
+    private Corpus messages;
+
+    @Setup
+    public void setUp() {
+        nlpProcessor = new NLPProcessor();
+        messages = Corpus.load(corpus);
+    }
+
+    @Benchmark
+    public String preprocess() {
+        return nlpProcessor.preprocess(messages.next());
+    }
+
+    @Benchmark
+    public List<String> tokenize() {
+        return nlpProcessor.tokenize(messages.next());
+    }
+
+    @Benchmark
+    public Intent classifyIntent() {
+        return nlpProcessor.classifyIntent(messages.next());
+    }
+
+    @Benchmark
+    public Map<String, Double> analyzeSentiment() {
+        return nlpProcessor.analyzeSentiment(messages.next());
+    }
+
+    @Benchmark
+    public SentimentScore scoreSentiment() {
+        return nlpProcessor.scoreSentiment(messages.next());
+    }
+
+    @Benchmark
+    public AnalyzedInput analyze() {
+        return nlpProcessor.analyze(messages.next());
+    }
+}
@@ -0,0 +1,49 @@
+package chatbot.bench;
+
+import chatbot.AnalyzedInput;
+import chatbot.NLPProcessor;
+import chatbot.ResponseGenerator;
+import chatbot.SessionContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResponseGenerator.generateResponse over pre-analyzed corpus messages
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseGeneratorBenchmark {
+
+    @Param({"greetings", "personal", "unknown"})
+    public String corpus;
+
+    private ResponseGenerator responseGenerator;
+    private SessionContext session;
+    private AnalyzedInput[] inputs;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        NLPProcessor nlpProcessor = new NLPProcessor();
+        responseGenerator = new ResponseGenerator();
+        session = new SessionContext("benchmark");
+
+        Corpus messages = Corpus.load(corpus);
+        inputs = new AnalyzedInput[messages.size()];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = nlpProcessor.analyze(messages.get(i));
+        }
+    }
+
+    @Benchmark
+    public String generateResponse() {
+        AnalyzedInput input = inputs[next];
+        next = next + 1 == inputs.length ? 0 : next + 1;
+        return responseGenerator.generateResponse(input, session);
+    }
+}
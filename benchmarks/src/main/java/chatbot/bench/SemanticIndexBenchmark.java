@@ -0,0 +1,71 @@
+package chatbot.bench;
+
+import chatbot.SemanticIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 cosine search over synthetic three-word patterns, up to one million rows,
+ * with the Vector API kernel and with the scalar loop
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "--add-modules", "jdk.incubator.vector"})
+public class SemanticIndexBenchmark {
+
+    private static final int VOCABULARY = 5_000;
+    private static final int QUERIES = 64;
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"64", "128"})
+    public int dimensions;
+
+    // Read when SemanticIndex is initialized, which happens in setUp of each fork
+    @Param({"true", "false"})
+    public boolean simd;
+
+    private SemanticIndex index;
+    private float[][] queries;
+    private final int[] entries = new int[10];
+    private final float[] similarities = new float[10];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("chatbot.semantic.simd", Boolean.toString(simd));
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        String[] texts = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            texts[i] = words[random.nextInt(VOCABULARY)] + " " + words[random.nextInt(VOCABULARY)] + " "
+                    + words[random.nextInt(VOCABULARY)];
+        }
+        index = SemanticIndex.build(texts, rows, dimensions);
+
+        queries = new float[QUERIES][dimensions];
+        for (float[] query : queries) {
+            index.embed(texts[random.nextInt(rows)], query);
+        }
+    }
+
+    @Benchmark
+    public int search() {
+        float[] query = queries[next++ & (QUERIES - 1)];
+        return index.search(query, entries.length, entries, similarities);
+    }
+}
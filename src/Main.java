@@ -0,0 +1,71 @@
+import chatbot.ChatServer;
+import chatbot.ChatbotEngine;
+import chatbot.ChatbotGUI;
+import chatbot.SessionManager;
+
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+
+/**
+ * Application entry point
+ * Opens the Swing GUI by default; with --server (or on a headless machine) runs the
+ * HTTP/JSON server instead
+ *
+ * Usage: Main [--server] [--port N]
+ */
+public class Main {
+
+    // JDK HttpServer keeps only 200 idle keep-alive connections unless told otherwise;
+    // the property is JVM-wide and read when the first server is created
+    private static final String MAX_IDLE_CONNECTIONS_PROPERTY = "sun.net.httpserver.maxIdleConnections";
+    private static final String DEFAULT_MAX_IDLE_CONNECTIONS = "50000";
+
+    public static void main(String[] args) {
+        boolean server = GraphicsEnvironment.isHeadless();
+        int port = ChatServer.DEFAULT_PORT;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--server":
+                    server = true;
+                    break;
+                case "--port":
+                    if (i + 1 == args.length) {
+                        usage("--port needs a value");
+                    }
+                    try {
+                        port = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        usage("Invalid port: " + args[i]);
+                    }
+                    break;
+                default:
+                    usage("Unknown option: " + args[i]);
+            }
+        }
+
+        if (!server) {
+            ChatbotGUI.main(args);
+            return;
+        }
+
+        if (System.getProperty(MAX_IDLE_CONNECTIONS_PROPERTY) == null) {
+            System.setProperty(MAX_IDLE_CONNECTIONS_PROPERTY, DEFAULT_MAX_IDLE_CONNECTIONS);
+        }
+        try {
+            ChatServer chatServer = new ChatServer(new SessionManager(new ChatbotEngine()), port);
+            Runtime.getRuntime().addShutdownHook(new Thread(chatServer::close, "chatbot-shutdown"));
+            chatServer.start();
+            System.out.println("CodeBot server listening on port " + chatServer.getPort());
+        } catch (IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: Main [--server] [--port N]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,117 @@
+package chatbot;
+
+import chatbot.ChatbotEngine.Intent;
+
+/**
+ * Immutable result of analyzing one user message
+ * The message is normalized and tokenized exactly once; every later stage
+ * (intent, sentiment, response generation, learning) reads from this object
+ */
+public final class AnalyzedInput {
+
+    private final String originalText;
+    private final String normalizedText;
+    private final int[] tokenStarts;
+    private final int[] tokenEnds;
+    private final int[] tokenIds;
+    private final int intentMask;
+    private final Intent intent;
+    private final SentimentScore sentiment;
+
+    AnalyzedInput(String originalText, String normalizedText, int[] tokenStarts, int[] tokenEnds,
+                  int[] tokenIds, int intentMask, Intent intent, SentimentScore sentiment) {
+        this.originalText = originalText;
+        this.normalizedText = normalizedText;
+        this.tokenStarts = tokenStarts;
+        this.tokenEnds = tokenEnds;
+        this.tokenIds = tokenIds;
+        this.intentMask = intentMask;
+        this.intent = intent;
+        this.sentiment = sentiment;
+    }
+
+    /**
+     * Raw text as typed by the user
+     */
+    public String getOriginalText() {
+        return originalText;
+    }
+
+    /**
+     * Lowercased, whitespace-collapsed, punctuation-filtered text
+     */
+    public String getNormalizedText() {
+        return normalizedText;
+    }
+
+    /**
+     * Number of tokens in the normalized text (stop words included)
+     */
+    public int getTokenCount() {
+        return tokenStarts.length;
+    }
+
+    /**
+     * Start offset of a token in the normalized text
+     */
+    public int getTokenStart(int index) {
+        return tokenStarts[index];
+    }
+
+    /**
+     * End offset (exclusive) of a token in the normalized text
+     */
+    public int getTokenEnd(int index) {
+        return tokenEnds[index];
+    }
+
+    /**
+     * Dictionary id of a token, or TokenDictionary.UNKNOWN_ID for out-of-vocabulary words
+     */
+    public int getTokenId(int index) {
+        return tokenIds[index];
+    }
+
+    /**
+     * Token text; allocates, so prefer offsets on hot paths
+     */
+    public String getToken(int index) {
+        return normalizedText.substring(tokenStarts[index], tokenEnds[index]);
+    }
+
+    /**
+     * Check whether a token equals the given word without allocating
+     */
+    public boolean tokenEquals(int index, String word) {
+        int length = tokenEnds[index] - tokenStarts[index];
+        return length == word.length() && normalizedText.regionMatches(tokenStarts[index], word, 0, length);
+    }
+
+    /**
+     * Bitmask of every intent whose keywords or phrases appear in the input
+     */
+    public int getIntentMask() {
+        return intentMask;
+    }
+
+    /**
+     * Check whether keywords of the given intent appear in the input
+     */
+    public boolean hasKeywordsFor(Intent candidate) {
+        return (intentMask & (1 << candidate.ordinal())) != 0;
+    }
+
+    /**
+     * Classified intent
+     */
+    public Intent getIntent() {
+        return intent;
+    }
+
+    /**
+     * Sentiment scores
+     */
+    public SentimentScore getSentiment() {
+        return sentiment;
+    }
+}
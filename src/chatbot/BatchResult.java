@@ -0,0 +1,42 @@
+package chatbot;
+
+/**
+ * Results of a batch run together with its throughput
+ */
+public final class BatchResult<T> {
+
+    private final T results;
+    private final long messageCount;
+    private final long elapsedNanos;
+
+    BatchResult(T results, long messageCount, long elapsedNanos) {
+        this.results = results;
+        this.messageCount = messageCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public T getResults() {
+        return results;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Messages processed per second of wall-clock time
+     */
+    public double getMessagesPerSecond() {
+        return elapsedNanos == 0 ? 0 : messageCount * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d messages in %.1f ms (%.0f msg/s)",
+                messageCount, elapsedNanos / 1_000_000.0, getMessagesPerSecond());
+    }
+}
@@ -0,0 +1,244 @@
+package chatbot;
+
+import javax.swing.AbstractListModel;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded list model for the chat view
+ * Only a window of at most capacity messages is held in memory; older (or newer)
+ * turns are paged in from the conversation history when the view scrolls to an edge,
+ * and the opposite end of the window is trimmed to stay within capacity
+ */
+public class ChatListModel extends AbstractListModel<ChatListModel.Message> {
+
+    /**
+     * One rendered chat message
+     * historyIndex is the turn's position in the conversation history, or -1 for
+     * view-only messages (welcome text, errors) that cannot be paged back in
+     */
+    public static final class Message {
+        private final long timestamp;
+        private final String sender;
+        private final Color color;
+        private final long historyIndex;
+        private String text;
+
+        public Message(long timestamp, String sender, String text, Color color, long historyIndex) {
+            this.timestamp = timestamp;
+            this.sender = sender;
+            this.text = text;
+            this.color = color;
+            this.historyIndex = historyIndex;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Color getColor() {
+            return color;
+        }
+
+        public long getHistoryIndex() {
+            return historyIndex;
+        }
+    }
+
+    private final ConversationHistory history;
+    private final Function<ConversationHistory.Turn, Message> converter;
+    private final int capacity;
+    private final List<Message> messages;
+
+    // History turns [firstHistoryIndex, endHistoryIndex) are loaded; nothing before floorIndex is shown
+    private long floorIndex;
+    private long firstHistoryIndex;
+    private long endHistoryIndex;
+
+    public ChatListModel(ConversationHistory history, int capacity,
+                         Function<ConversationHistory.Turn, Message> converter) {
+        this.history = history;
+        this.capacity = capacity;
+        this.converter = converter;
+        this.messages = new ArrayList<>(capacity);
+        // Start empty at the latest turn; turns restored from a journal can be paged in with loadOlder
+        this.floorIndex = 0;
+        this.firstHistoryIndex = history.size();
+        this.endHistoryIndex = firstHistoryIndex;
+    }
+
+    @Override
+    public int getSize() {
+        return messages.size();
+    }
+
+    @Override
+    public Message getElementAt(int index) {
+        return messages.get(index);
+    }
+
+    /**
+     * Position of a message in the window, or -1 if it is not loaded
+     */
+    public int indexOf(Message message) {
+        return messages.indexOf(message);
+    }
+
+    /**
+     * Append a live message, jumping to the latest page first if the window has scrolled back
+     */
+    public void add(Message message) {
+        long index = message.historyIndex;
+        if (index >= 0 && index != endHistoryIndex) {
+            reloadUpTo(index);
+        }
+
+        messages.add(message);
+        if (index >= 0) {
+            if (firstHistoryIndex == endHistoryIndex) {
+                firstHistoryIndex = index;
+            }
+            endHistoryIndex = index + 1;
+        }
+        fireIntervalAdded(this, messages.size() - 1, messages.size() - 1);
+        trimFront(messages.size() - capacity);
+    }
+
+    /**
+     * Append streamed text to the newest message
+     */
+    public void appendToLast(String chunk) {
+        int last = messages.size() - 1;
+        if (last < 0) return;
+        Message message = messages.get(last);
+        message.text = message.text + chunk;
+        fireContentsChanged(this, last, last);
+    }
+
+    /**
+     * Whether older turns exist in history before the window
+     */
+    public boolean hasOlder() {
+        return firstHistoryIndex > floorIndex;
+    }
+
+    /**
+     * Whether newer turns exist in history after the window
+     */
+    public boolean hasNewer() {
+        return endHistoryIndex < history.size();
+    }
+
+    /**
+     * Prepend up to count older turns from history, trimming the newest if over capacity
+     * Returns the number of messages inserted at the top
+     */
+    public int loadOlder(int count) {
+        long from = Math.max(floorIndex, firstHistoryIndex - count);
+        List<ConversationHistory.Turn> turns = history.page(from, (int) (firstHistoryIndex - from));
+        if (turns.isEmpty()) return 0;
+
+        List<Message> older = new ArrayList<>(turns.size());
+        for (int i = 0; i < turns.size(); i++) {
+            older.add(withIndex(converter.apply(turns.get(i)), from + i));
+        }
+        messages.addAll(0, older);
+        firstHistoryIndex = from;
+        fireIntervalAdded(this, 0, older.size() - 1);
+        trimBack(messages.size() - capacity);
+        return older.size();
+    }
+
+    /**
+     * Append up to count newer turns from history, trimming the oldest if over capacity
+     * Returns the number of messages removed from the top
+     */
+    public int loadNewer(int count) {
+        List<ConversationHistory.Turn> turns = history.page(endHistoryIndex, count);
+        if (turns.isEmpty()) return 0;
+
+        int start = messages.size();
+        for (int i = 0; i < turns.size(); i++) {
+            messages.add(withIndex(converter.apply(turns.get(i)), endHistoryIndex + i));
+        }
+        endHistoryIndex += turns.size();
+        fireIntervalAdded(this, start, messages.size() - 1);
+        return trimFront(messages.size() - capacity);
+    }
+
+    /**
+     * Empty the view; earlier turns stay in history but are no longer paged in
+     */
+    public void clear() {
+        int size = messages.size();
+        messages.clear();
+        floorIndex = history.size();
+        firstHistoryIndex = floorIndex;
+        endHistoryIndex = floorIndex;
+        if (size > 0) {
+            fireIntervalRemoved(this, 0, size - 1);
+        }
+    }
+
+    /**
+     * Replace the window with the latest turns before the given history index
+     */
+    private void reloadUpTo(long index) {
+        int size = messages.size();
+        messages.clear();
+        if (size > 0) {
+            fireIntervalRemoved(this, 0, size - 1);
+        }
+
+        long from = Math.max(floorIndex, index - capacity / 2);
+        List<ConversationHistory.Turn> turns = history.page(from, (int) (index - from));
+        for (int i = 0; i < turns.size(); i++) {
+            messages.add(withIndex(converter.apply(turns.get(i)), from + i));
+        }
+        firstHistoryIndex = from;
+        endHistoryIndex = from + turns.size();
+        if (!messages.isEmpty()) {
+            fireIntervalAdded(this, 0, messages.size() - 1);
+        }
+    }
+
+    private int trimFront(int count) {
+        if (count <= 0) return 0;
+        for (int i = 0; i < count; i++) {
+            long index = messages.get(i).historyIndex;
+            if (index >= 0) {
+                firstHistoryIndex = index + 1;
+            }
+        }
+        messages.subList(0, count).clear();
+        fireIntervalRemoved(this, 0, count - 1);
+        return count;
+    }
+
+    private void trimBack(int count) {
+        if (count <= 0) return;
+        int size = messages.size();
+        for (int i = size - count; i < size; i++) {
+            long index = messages.get(i).historyIndex;
+            if (index >= 0) {
+                endHistoryIndex = Math.min(endHistoryIndex, index);
+            }
+        }
+        messages.subList(size - count, size).clear();
+        fireIntervalRemoved(this, size - count, size - 1);
+    }
+
+    private static Message withIndex(Message message, long historyIndex) {
+        return new Message(message.timestamp, message.sender, message.text, message.color, historyIndex);
+    }
+}
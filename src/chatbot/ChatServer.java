@@ -0,0 +1,429 @@
+package chatbot;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless HTTP/JSON front end for the chatbot, built on the JDK HttpServer
+ * Connections are multiplexed by the server's selector thread, so idle keep-alive
+ * connections and idle sessions hold no request thread. Requests run on virtual
+ * threads when the runtime provides them (Java 21+), otherwise on a bounded pool
+ *
+ * POST   /chat         {"message": "..."}  -> {"sessionId": "...", "response": "..."}
+ * POST   /chat/stream  same request, response streamed as Server-Sent Events
+ * GET    /chat/stream?message=...  the same for EventSource clients
+ * DELETE /session      ends the caller's session
+ * GET    /health       liveness, session count and knowledge-base size
+ *
+ * The session id travels in the X-Session-Id header or the chatbot_session cookie;
+ * a new session is created when the request carries neither, or carries an id this
+ * server did not issue or whose session has ended. The new id is returned in both.
+ * Evicted sessions, and sessions from before a restart, resume from their journal
+ * when chatbot.journalDir is set
+ *
+ * The JDK server keeps only 200 idle keep-alive connections; the JVM-wide
+ * sun.net.httpserver.maxIdleConnections raises that and is read once, when the first
+ * server is created, so it must be set on the command line or before that (Main does)
+ */
+public class ChatServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final String SESSION_HEADER = "X-Session-Id";
+    public static final String SESSION_COOKIE = "chatbot_session";
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_SESSION_ID_LENGTH = 128;
+
+    private final SessionManager sessionManager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long startMillis = System.currentTimeMillis();
+
+    public ChatServer(SessionManager sessionManager, int port) throws IOException {
+        this(sessionManager, new InetSocketAddress(port));
+    }
+
+    public ChatServer(SessionManager sessionManager, InetSocketAddress address) throws IOException {
+        this.sessionManager = sessionManager;
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/chat", this::handleChat);
+        server.createContext("/chat/stream", this::handleChatStream);
+        server.createContext("/session", this::handleSession);
+        server.createContext("/health", this::handleHealth);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Bound port (useful when started on port 0)
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting requests, give in-flight ones a second to finish and end all sessions
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sessionManager.close();
+        sessionManager.getEngine().close();
+    }
+
+    /**
+     * Virtual-thread-per-task executor when available, otherwise a fixed pool
+     * Looked up reflectively so the server still runs on Java 17
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "chatbot-http-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                respondToChat(exchange);
+            } catch (RuntimeException e) {
+                // Still inside the resource block, so the exchange is open for the 500
+                System.err.println("Error handling chat request: " + e);
+                sendInternalError(exchange);
+            }
+        }
+    }
+
+    private void respondToChat(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "Use POST");
+            return;
+        }
+
+        ChatRequest request = readChatRequest(exchange);
+        if (request == null) return;
+
+        String sessionId = request.session.getSessionId();
+        String response = sessionManager.processInput(request.session, request.message);
+
+        StringBuilder json = new StringBuilder(response.length() + 64);
+        json.append("{\"sessionId\":");
+        Json.appendString(json, sessionId);
+        json.append(",\"response\":");
+        Json.appendString(json, response);
+        json.append('}');
+
+        setSessionHeaders(exchange, sessionId);
+        sendJson(exchange, 200, json);
+    }
+
+    /**
+     * Stream the response as Server-Sent Events: one "data" event per chunk, then a "done" event
+     * Headers go out with the first chunk; every chunk is flushed as soon as it is produced
+     */
+    private void handleChatStream(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                respondToChatStream(exchange);
+            } catch (RuntimeException e) {
+                System.err.println("Error handling chat stream: " + e);
+                sendInternalError(exchange);
+            }
+        }
+    }
+
+    private void respondToChatStream(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (!"POST".equals(method) && !"GET".equals(method)) {
+            sendError(exchange, 405, "Use GET or POST");
+            return;
+        }
+
+        ChatRequest request = readChatRequest(exchange);
+        if (request == null) return;
+        String sessionId = request.session.getSessionId();
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "text/event-stream; charset=utf-8");
+        headers.set("Cache-Control", "no-cache");
+        setSessionHeaders(exchange, sessionId);
+
+        OutputStream out = exchange.getResponseBody();
+        StringBuilder event = new StringBuilder(128);
+        try {
+            sessionManager.processInput(request.session, request.message, chunk -> {
+                startEventStream(exchange);
+                event.setLength(0);
+                appendEventData(event, chunk);
+                writeEvent(out, event);
+            });
+            startEventStream(exchange);
+            writeEvent(out, event.replace(0, event.length(), "event: done\ndata: \n\n"));
+        } catch (UncheckedIOException e) {
+            // Client went away mid-stream
+        }
+        out.close();
+    }
+
+    // Sent with the first chunk rather than up front, so an engine failure can still answer 500
+    private static void startEventStream(HttpExchange exchange) {
+        if (exchange.getResponseCode() != -1) return;
+        try {
+            exchange.sendResponseHeaders(200, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A chat message and the session it belongs to, resolved once per request
+     */
+    private static final class ChatRequest {
+        private final SessionContext session;
+        private final String message;
+
+        private ChatRequest(SessionContext session, String message) {
+            this.session = session;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Read the message and session of a chat request, creating a session if needed
+     * Only ids of live or resumable sessions are kept, so clients cannot choose their own
+     * Returns null after sending an error response if the request is invalid
+     */
+    private ChatRequest readChatRequest(HttpExchange exchange) throws IOException {
+        Map<String, String> request;
+        try {
+            request = "GET".equals(exchange.getRequestMethod())
+                    ? parseQuery(exchange.getRequestURI().getRawQuery())
+                    : Json.parseObject(readBody(exchange));
+            request.put("sessionId", sessionIdOf(exchange, request.get("sessionId")));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return null;
+        }
+        if (request.get("message") == null) {
+            sendError(exchange, 400, "Missing \"message\"");
+            return null;
+        }
+        String sessionId = request.get("sessionId");
+        SessionContext session = sessionId != null ? sessionManager.resumeSession(sessionId) : null;
+        if (session == null) {
+            session = sessionManager.openSession();
+        }
+        return new ChatRequest(session, request.get("message"));
+    }
+
+    private static void setSessionHeaders(HttpExchange exchange, String sessionId) {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set(SESSION_HEADER, sessionId);
+        headers.set("Set-Cookie", SESSION_COOKIE + "=" + sessionId + "; Path=/; HttpOnly; SameSite=Strict");
+    }
+
+    // SSE strips one space after "data:", and a line break inside the data needs its own data line
+    private static void appendEventData(StringBuilder event, String chunk) {
+        event.append("data: ");
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n') {
+                event.append("\ndata: ");
+            } else if (c != '\r') {
+                event.append(c);
+            }
+        }
+        event.append("\n\n");
+    }
+
+    private static void writeEvent(OutputStream out, CharSequence event) {
+        try {
+            out.write(event.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) return parameters;
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private void handleSession(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"DELETE".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use DELETE");
+                return;
+            }
+            String sessionId;
+            try {
+                sessionId = sessionIdOf(exchange, null);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+            if (sessionId == null || !sessionManager.endSession(sessionId)) {
+                sendError(exchange, 404, "Unknown session");
+                return;
+            }
+            exchange.getResponseHeaders().set("Set-Cookie", SESSION_COOKIE + "=; Path=/; Max-Age=0");
+            exchange.sendResponseHeaders(204, -1);
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use GET");
+                return;
+            }
+            ChatbotModel model = sessionManager.getEngine().getModel();
+            ChatbotModel.ReloadResult reload = model.getLastReload();
+            StringBuilder json = new StringBuilder(160);
+            json.append("{\"status\":\"UP\",\"sessions\":").append(sessionManager.getSessionCount())
+                    .append(",\"uptimeMillis\":").append(System.currentTimeMillis() - startMillis)
+                    .append(",\"knowledgeBaseEntries\":").append(model.getKnowledgeBase().size());
+            if (reload != null) {
+                json.append(",\"knowledgeBaseReloadedAt\":").append(reload.getTimestamp())
+                        .append(",\"knowledgeBaseReloadMillis\":").append(reload.getDurationMillis());
+            }
+            SpellingIndex spelling = model.getKnowledgeBase().getSpellingIndex();
+            SpellingIndex intentSpelling = model.getNlpProcessor().getSpellingIndex();
+            if (spelling != null || intentSpelling != null) {
+                json.append(",\"spellingIndexBytes\":").append(
+                        (spelling != null ? spelling.getMemoryBytes() : 0)
+                                + (intentSpelling != null ? intentSpelling.getMemoryBytes() : 0));
+            }
+            SemanticIndex semantic = model.getKnowledgeBase().getSemanticIndex();
+            if (semantic != null) {
+                json.append(",\"semanticIndexBytes\":").append(semantic.getMemoryBytes());
+            }
+            json.append('}');
+            sendJson(exchange, 200, json);
+        }
+    }
+
+    /**
+     * Session id from the header, then the cookie, then the request body; null if absent
+     */
+    private static String sessionIdOf(HttpExchange exchange, String bodySessionId) {
+        String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        if (sessionId == null) {
+            sessionId = cookieValue(exchange.getRequestHeaders(), SESSION_COOKIE);
+        }
+        if (sessionId == null) {
+            sessionId = bodySessionId;
+        }
+        if (sessionId == null || sessionId.isEmpty()) {
+            return null;
+        }
+        if (!isValidSessionId(sessionId)) {
+            throw new IllegalArgumentException("Invalid session id");
+        }
+        return sessionId;
+    }
+
+    private static String cookieValue(Headers headers, String name) {
+        for (String header : headers.getOrDefault("Cookie", List.of())) {
+            for (String cookie : header.split(";")) {
+                int equals = cookie.indexOf('=');
+                if (equals > 0 && cookie.substring(0, equals).trim().equals(name)) {
+                    return cookie.substring(equals + 1).trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Session ids are echoed into headers, so only allow URL-safe characters
+    private static boolean isValidSessionId(String sessionId) {
+        if (sessionId.length() > MAX_SESSION_ID_LENGTH) return false;
+        for (int i = 0; i < sessionId.length(); i++) {
+            char c = sessionId.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.appendString(json, message).append('}');
+        sendJson(exchange, status, json);
+    }
+
+    // Nothing can be sent once the response headers are out; the client sees the stream end
+    private static void sendInternalError(HttpExchange exchange) throws IOException {
+        if (exchange.getResponseCode() == -1) {
+            sendError(exchange, 500, "Internal error");
+        }
+    }
+
+    // Fixed-length responses keep the connection reusable for keep-alive
+    private static void sendJson(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -1,20 +1,60 @@
 package chatbot;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import chatbot.ConversationHistory.Speaker;
 
 /**
  * Core chatbot engine implementing NLP and ML-like response generation
  * Uses rule-based system with learning capabilities
  */
 public class ChatbotEngine {
-    private NLPProcessor nlpProcessor;
-    private ResponseGenerator responseGenerator;
-    private Map<String, Integer> topicFrequency;
-    private List<String> conversationHistory;
-    private Map<String, String> learnedResponses;
+    private final ChatbotModel model;
+    private final NLPProcessor nlpProcessor;
+    private final ResponseGenerator responseGenerator;
+    private final LearnedResponseStore learnedResponses;
+
+    // Topic counts across every session of this engine
+    private final TopicCounters globalTopics;
+
+    // Background writer for session journals; sessions are journaled to chatbot.journalDir when set
+    private final JournalWriter journalWriter;
+    private final Path journalDir;
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    // Journals of closed sessions still being written out, by file; reopening one waits for it
+    private final Map<Path, CompletableFuture<Void>> closingJournals = new ConcurrentHashMap<>();
+
+    // Session used by the single-user API (GUI); its id is reserved for it
+    public static final String DEFAULT_SESSION_ID = "default";
+    private final SessionContext defaultSession;
+
+    // Date line of saved conversations
+    private static final DateTimeFormatter SAVE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Runs text exports off the caller's thread
+    private static final ExecutorService EXPORT_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chatbot-export");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // Intent categories for classification
     public enum Intent {
@@ -23,153 +63,388 @@ public class ChatbotEngine {
     }
 
     public ChatbotEngine() {
-        this.nlpProcessor = new NLPProcessor();
-        this.responseGenerator = new ResponseGenerator();
-        this.topicFrequency = new HashMap<>();
-        this.conversationHistory = new ArrayList<>();
-        this.learnedResponses = new HashMap<>();
+        this(new ChatbotModel());
+    }
 
-        loadKnowledgeBase();
-        initializeMLModel();
+    /**
+     * Engine over an already-built model, which may be shared with other engines
+     */
+    public ChatbotEngine(ChatbotModel model) {
+        this.model = model;
+        this.nlpProcessor = model.getNlpProcessor();
+        this.responseGenerator = model.getResponseGenerator();
+        this.learnedResponses = LearnedResponseStore.fromSystemProperties();
+        this.globalTopics = new TopicCounters();
+        this.journalWriter = JournalWriter.fromSystemProperties();
+        String configuredJournalDir = System.getProperty("chatbot.journalDir");
+        this.journalDir = configuredJournalDir != null ? Paths.get(configuredJournalDir) : null;
+        this.defaultSession = newSession(DEFAULT_SESSION_ID);
     }
 
     /**
      * Main method to process user input and generate response
      */
     public String processInput(String userInput) {
+        return processInput(defaultSession, userInput);
+    }
+
+    /**
+     * Process user input for the default session, streaming the response in chunks
+     */
+    public String processInput(String userInput, Consumer<? super String> onChunk) {
+        return processInput(defaultSession, userInput, onChunk);
+    }
+
+    /**
+     * Process user input and stream the response to the callback in word-sized chunks
+     * The first chunk is delivered as soon as the engine has produced the response, with
+     * no artificial delay; the complete response is also returned
+     */
+    public String processInput(SessionContext session, String userInput, Consumer<? super String> onChunk) {
+        String response = processInput(session, userInput);
+        ResponseChunker.forEachChunk(response, onChunk);
+        return response;
+    }
+
+    /**
+     * Process user input within a session
+     * Turns of one session are processed one at a time; different sessions run concurrently
+     */
+    public String processInput(SessionContext session, String userInput) {
+        String response = processIfOpen(session, userInput);
+        if (response == null) {
+            throw new IllegalStateException("Session is closed: " + session.getSessionId());
+        }
+        return response;
+    }
+
+    /**
+     * Like processInput, but returns null without recording anything if the session is closed
+     * The check is made under the session monitor, which close() is called under as well
+     */
+    String processIfOpen(SessionContext session, String userInput) {
         if (userInput == null || userInput.trim().isEmpty()) {
             return "I didn't catch that. Could you please say something?";
         }
 
-        // Add to conversation history
-        conversationHistory.add("USER: " + userInput);
+        // Process with NLP (normalize and tokenize once, shared by every stage)
+        AnalyzedInput analyzed = nlpProcessor.analyze(userInput);
 
-        // Process with NLP
-        String processedInput = nlpProcessor.preprocess(userInput);
-        Intent intent = nlpProcessor.classifyIntent(processedInput);
-        Map<String, Double> sentiment = nlpProcessor.analyzeSentiment(processedInput);
+        synchronized (session) {
+            if (session.isClosed()) return null;
+            session.touch();
 
-        // Update topic frequency (simple ML)
-        updateTopicFrequency(intent.toString());
+            // Add to conversation history
+            session.record(Speaker.USER, analyzed.getIntent(), analyzed.getSentiment(), userInput);
 
-        // Generate response
-        String response = responseGenerator.generateResponse(intent, processedInput, sentiment);
+            // Update topic frequency (simple ML)
+            session.getTopics().record(analyzed.getIntent());
 
-        // Learn from interaction
-        learnFromInteraction(processedInput, response);
+            // Specific patterns, the knowledge base, then generated responses
+            // (the model's current index is read once; a reload swaps in a new one)
+            String response = responseGenerator.generateResponse(analyzed, session, model.getKnowledgeBase());
 
-        // Add response to history
-        conversationHistory.add("BOT: " + response);
+            // Learn from interaction (live sessions only)
+            if (session.isLearning()) {
+                learnFromInteraction(analyzed, response);
+            }
 
-        return response;
+            // Add response to history
+            session.record(Speaker.BOT, analyzed.getIntent(), null, response);
+
+            return response;
+        }
     }
 
     /**
-     * Initialize simple machine learning model (frequency-based learning)
+     * Process independent messages in parallel on the common fork-join pool
+     * Each message gets a fresh, detached context, so results do not depend on
+     * scheduling and batch runs touch neither live session analytics nor learned patterns
      */
-    private void initializeMLModel() {
-        // Initialize topic frequencies
-        for (Intent intent : Intent.values()) {
-            topicFrequency.put(intent.toString(), 0);
-        }
+    public BatchResult<List<String>> processBatch(List<String> inputs) {
+        long start = System.nanoTime();
+        String[] responses = new String[inputs.size()];
+        IntStream.range(0, responses.length).parallel()
+                .forEach(i -> responses[i] = processInput(newBatchContext("batch-" + i), inputs.get(i)));
+        return new BatchResult<>(Arrays.asList(responses), responses.length, System.nanoTime() - start);
     }
 
     /**
-     * Update topic frequency for simple learning
+     * Process independent messages as a stream; results keep the encounter order of
+     * an ordered input stream and are computed in parallel as the stream is consumed
      */
-    private void updateTopicFrequency(String topic) {
-        topicFrequency.put(topic, topicFrequency.getOrDefault(topic, 0) + 1);
+    public Stream<String> processStream(Stream<String> inputs) {
+        return inputs.parallel().map(input -> processInput(newBatchContext("stream"), input));
     }
 
     /**
-     * Simple learning mechanism - stores patterns
+     * Process messages as a stream and report its throughput when the stream is closed
+     * The summary counts the messages processed, timed from the first one to close()
+     */
+    public Stream<String> processStream(Stream<String> inputs, Consumer<BatchResult<Void>> summary) {
+        LongAdder processed = new LongAdder();
+        AtomicLong start = new AtomicLong();
+        return processStream(inputs.peek(input -> start.compareAndSet(0, System.nanoTime())))
+                .peek(response -> processed.increment())
+                .onClose(() -> {
+                    long first = start.get();
+                    summary.accept(new BatchResult<>(null, processed.sum(), first == 0 ? 0 : System.nanoTime() - first));
+                });
+    }
+
+    /**
+     * Replay whole conversations in parallel
+     * Conversations run concurrently; the turns of each conversation are processed
+     * in order within one context, so context-dependent responses behave as in a live session
+     * Like batches, replays learn no patterns, so synthetic traffic never reaches the learned store
+     */
+    public BatchResult<Map<String, List<String>>> processConversations(Map<String, List<String>> conversations) {
+        long start = System.nanoTime();
+        Map<String, List<String>> results = new ConcurrentHashMap<>();
+        conversations.entrySet().parallelStream().forEach(conversation -> {
+            SessionContext session = new SessionContext(conversation.getKey(), null, SessionContext.HISTORY_CAPACITY, false);
+            List<String> responses = new ArrayList<>(conversation.getValue().size());
+            for (String input : conversation.getValue()) {
+                responses.add(processInput(session, input));
+            }
+            session.close();
+            results.put(conversation.getKey(), responses);
+        });
+
+        long messages = conversations.values().stream().mapToLong(List::size).sum();
+        return new BatchResult<>(results, messages, System.nanoTime() - start);
+    }
+
+    private SessionContext newBatchContext(String id) {
+        return new SessionContext(id, null, SessionContext.BATCH_HISTORY_CAPACITY, false);
+    }
+
+    /**
+     * Create a session whose topic counts also feed this engine's global analytics
+     */
+    public SessionContext newSession(String sessionId) {
+        SessionContext session = new SessionContext(sessionId, globalTopics, SessionContext.HISTORY_CAPACITY);
+        session.setJournal(openJournal(session, sessionId.equals(DEFAULT_SESSION_ID)));
+        return session;
+    }
+
+    /**
+     * Whether the journal directory holds a journal for the session id
+     */
+    boolean hasJournal(String sessionId) {
+        return journalDir != null && Files.isRegularFile(journalFile(sessionId));
+    }
+
+    /**
+     * Close a session; with discardJournal its journal file is deleted once written out,
+     * since nobody can resume the session any more
+     * Until the journal is closed (and deleted), a new session with the same id waits
+     * before opening the file, so two journals never write to it at once
+     */
+    void closeSession(SessionContext session, boolean discardJournal) {
+        ConversationJournal journal = session.getJournal();
+        if (journalDir == null || journal == null) {
+            session.close();
+            return;
+        }
+
+        // Registered before the session reads as closed, so whoever replaces it finds the entry
+        Path file = journal.getFile();
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        closingJournals.put(file, released);
+        released.whenComplete((ignored, error) -> closingJournals.remove(file, released));
+        session.close().whenComplete((ignored, error) -> {
+            if (discardJournal) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("Could not delete journal " + file + ": " + e.getMessage());
+                }
+            }
+            released.complete(null);
+        });
+    }
+
+    /**
+     * Delete the journal of a session that is not open; false if there was none
      */
-    private void learnFromInteraction(String input, String response) {
-        // Extract key phrases and store successful interactions
-        String[] words = input.toLowerCase().split("\\s+");
-        if (words.length > 2) {
-            String pattern = String.join(" ", Arrays.copyOfRange(words, 0, Math.min(3, words.length)));
-            learnedResponses.put(pattern, response);
+    boolean deleteJournal(String sessionId) {
+        if (journalDir == null) return false;
+        try {
+            return Files.deleteIfExists(journalFile(sessionId));
+        } catch (IOException e) {
+            System.err.println("Could not delete journal of session " + sessionId + ": " + e.getMessage());
+            return false;
         }
     }
 
     /**
-     * Load knowledge base from file
+     * Delete journals of server-issued sessions not written since the cutoff, skipping live ones
      */
-    private void loadKnowledgeBase() {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("knowledge_base.txt");
-             BufferedReader reader = new BufferedReader(new InputStreamReader(is != null ? is :
-                     new ByteArrayInputStream(getDefaultKnowledgeBase().getBytes())))) {
+    void pruneJournals(long cutoffMillis, Predicate<String> live) {
+        if (journalDir == null || !Files.isDirectory(journalDir)) return;
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(journalDir, "*" + JOURNAL_SUFFIX)) {
+            for (Path file : journals) {
+                String name = file.getFileName().toString();
+                String sessionId = name.substring(0, name.length() - JOURNAL_SUFFIX.length());
+                if (!SessionManager.isIssuedSessionId(sessionId) || live.test(sessionId)) continue;
+                if (Files.getLastModifiedTime(file).toMillis() < cutoffMillis) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not prune journals in " + journalDir + ": " + e.getMessage());
+        }
+    }
+
+    private Path journalFile(String sessionId) {
+        return journalDir.resolve(sessionId.replaceAll("[^A-Za-z0-9_-]", "_") + JOURNAL_SUFFIX);
+    }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.contains("|")) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length == 2) {
-                        learnedResponses.put(parts[0].trim().toLowerCase(), parts[1].trim());
-                    }
+    /**
+     * Journal for a session: a file in the journal directory if one is configured,
+     * otherwise a temporary file for the default session (it backs text exports) and none for others
+     * Turns already in an existing journal are replayed into the session
+     */
+    private ConversationJournal openJournal(SessionContext session, boolean required) {
+        String sessionId = session.getSessionId();
+        try {
+            if (journalDir != null) {
+                Files.createDirectories(journalDir);
+                Path file = journalFile(sessionId);
+                CompletableFuture<Void> closing = closingJournals.get(file);
+                if (closing != null) {
+                    closing.join();
                 }
+                return journalWriter.open(file, session::restore);
+            }
+            if (required) {
+                Path file = Files.createTempFile("chatbot-" + sessionId, ".journal");
+                file.toFile().deleteOnExit();
+                return journalWriter.open(file);
             }
         } catch (IOException e) {
-            System.err.println("Could not load knowledge base: " + e.getMessage());
+            System.err.println("Could not open journal for session " + sessionId + ": " + e.getMessage());
         }
+        return null;
+    }
+
+    /**
+     * Write out pending journal entries and learned patterns and release the default session
+     */
+    public void close() {
+        defaultSession.close();
+        journalWriter.close();
+        learnedResponses.close();
+    }
+
+    /**
+     * Shared model used by this engine
+     */
+    public ChatbotModel getModel() {
+        return model;
+    }
+
+    /**
+     * Patterns learned from interactions with this engine
+     */
+    public LearnedResponseStore getLearnedResponses() {
+        return learnedResponses;
     }
 
     /**
-     * Get default knowledge base if file not found
+     * Simple learning mechanism - stores patterns
      */
-    private String getDefaultKnowledgeBase() {
-        return """
-            hello|Hello! How can I help you today?
-            hi|Hi there! What's on your mind?
-            good morning|Good morning! Hope you're having a great day!
-            how are you|I'm doing well, thank you for asking! How about you?
-            what is your name|I'm an AI chatbot created for the CodeAlpha project. You can call me CodeBot!
-            what can you do|I can chat with you, answer questions, and learn from our conversations!
-            thank you|You're very welcome! Happy to help!
-            bye|Goodbye! It was nice chatting with you!
-            help|I'm here to chat and answer your questions. Try asking me about technology, general topics, or just have a conversation!
-            what time is it|Let me check the current time for you.
-            tell me a joke|Why don't scientists trust atoms? Because they make up everything!
-            who created you|I was created as part of a CodeAlpha internship project using Java and NLP techniques.
-            """;
+    private void learnFromInteraction(AnalyzedInput input, String response) {
+        // Key phrases (first three tokens) and their responses, kept while they recur
+        learnedResponses.learn(input, response);
     }
 
     /**
      * Get most discussed topics (simple analytics)
      */
     public Map<String, Integer> getTopicAnalytics() {
-        return new HashMap<>(topicFrequency);
+        return getTopicSnapshot().toMap();
+    }
+
+    /**
+     * Non-blocking snapshot of the single-user session's topic counts
+     */
+    public TopicCounters.Snapshot getTopicSnapshot() {
+        return defaultSession.getTopics().snapshot();
+    }
+
+    /**
+     * Non-blocking snapshot of topic counts across every session
+     */
+    public TopicCounters.Snapshot getGlobalTopicSnapshot() {
+        return globalTopics.snapshot();
     }
 
     /**
-     * Get conversation history
+     * Get the most recent turns of the conversation history in "USER: "/"BOT: " form
      */
     public List<String> getConversationHistory() {
-        return new ArrayList<>(conversationHistory);
+        List<String> messages = new ArrayList<>();
+        for (ConversationHistory.Turn turn : defaultSession.getHistory().recent(SessionContext.HISTORY_CAPACITY)) {
+            messages.add(turn.toString());
+        }
+        return messages;
+    }
+
+    /**
+     * Get the full conversation history for paged or iterator access
+     */
+    public ConversationHistory getHistory() {
+        return defaultSession.getHistory();
     }
 
     /**
      * Save conversation to file
      */
     public void saveConversation(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+        try {
+            saveConversationAsync(Paths.get(filename)).join();
+        } catch (CompletionException e) {
+            System.err.println("Error saving conversation: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Export the default conversation as text without blocking the caller
+     * The export streams turns from the session journal; saving to the same file again
+     * only appends the turns since the last save and rewrites the analytics trailer
+     */
+    public CompletableFuture<Path> saveConversationAsync(Path file) {
+        ConversationJournal journal = defaultSession.getJournal();
+        if (journal == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Conversation is not journaled"));
+        }
+
+        return journal.sync().thenApplyAsync(ignored -> {
+            StringWriter header = new StringWriter();
+            PrintWriter writer = new PrintWriter(header);
             writer.println("=== Chatbot Conversation Log ===");
-            writer.println("Date: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            writer.println("Date: " + LocalDateTime.now().format(SAVE_DATE_FORMAT));
             writer.println();
+            writer.flush();
 
-            for (String message : conversationHistory) {
-                writer.println(message);
-            }
-
+            StringWriter trailer = new StringWriter();
+            writer = new PrintWriter(trailer);
             writer.println();
             writer.println("=== Topic Analytics ===");
-            topicFrequency.entrySet().stream()
-                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                    .forEach(entry -> writer.println(entry.getKey() + ": " + entry.getValue()));
+            TopicCounters.Snapshot topics = getTopicSnapshot();
+            for (Intent intent : topics.byFrequency()) {
+                writer.println(intent + ": " + topics.get(intent));
+            }
+            writer.flush();
 
-        } catch (IOException e) {
-            System.err.println("Error saving conversation: " + e.getMessage());
-        }
+            try {
+                journal.exportText(file, header.toString(), trailer.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return file;
+        }, EXPORT_EXECUTOR);
     }
 }
\ No newline at end of file
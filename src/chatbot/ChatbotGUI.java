@@ -5,9 +5,11 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
 
 /**
  * Modern GUI for the AI Chatbot with real-time interaction
@@ -16,7 +18,11 @@ import java.util.Map;
 public class ChatbotGUI extends JFrame {
 
     private ChatbotEngine chatbotEngine;
-    private JTextArea chatArea;
+    private JList<ChatListModel.Message> chatList;
+    private JScrollPane chatScrollPane;
+    private ChatListModel chatModel;
+    private boolean scrollPending = false;
+    private java.io.File lastSaveFile;
     private JTextField inputField;
     private JButton sendButton;
     private JButton clearButton;
@@ -33,10 +39,21 @@ public class ChatbotGUI extends JFrame {
     private static final Color BOT_MESSAGE_COLOR = new Color(46, 204, 113);
     private static final Color TEXT_COLOR = new Color(44, 62, 80);
 
+    private static final DateTimeFormatter MESSAGE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Messages kept in the chat view, and turns paged in from history at a time
+    private static final int CHAT_VIEW_CAPACITY = 200;
+    private static final int CHAT_PAGE_SIZE = 50;
+
+    // Optional cosmetic delay between streamed chunks (off unless chatbot.typingDelayMillis is set)
+    private static final long TYPING_DELAY_MILLIS = Long.getLong("chatbot.typingDelayMillis", 0);
+
     public ChatbotGUI() {
         this.chatbotEngine = new ChatbotEngine();
         initializeGUI();
         setupEventListeners();
+        // Show the end of a conversation restored from the journal, then greet
+        chatModel.loadOlder(CHAT_PAGE_SIZE);
         showWelcomeMessage();
     }
 
@@ -46,6 +63,14 @@ public class ChatbotGUI extends JFrame {
     private void initializeGUI() {
         setTitle("CodeAlpha AI Chatbot - CodeBot Assistant");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+        // Flush the conversation journal before the application exits
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                chatbotEngine.close();
+            }
+        });
         setSize(800, 600);
         setLocationRelativeTo(null);
         setResizable(true);
@@ -125,23 +150,37 @@ public class ChatbotGUI extends JFrame {
     private JPanel createChatPanel() {
         JPanel chatPanel = new JPanel(new BorderLayout());
 
-        // Chat area with custom styling
-        chatArea = new JTextArea();
-        chatArea.setEditable(false);
-        chatArea.setFont(new Font("Dialog", Font.PLAIN, 14));
-        chatArea.setBackground(Color.WHITE);
-        chatArea.setForeground(TEXT_COLOR);
-        chatArea.setLineWrap(true);
-        chatArea.setWrapStyleWord(true);
-        chatArea.setBorder(new EmptyBorder(15, 15, 15, 15));
+        // Virtualized message list: only visible rows are rendered, and the model is bounded
+        chatModel = new ChatListModel(chatbotEngine.getHistory(), CHAT_VIEW_CAPACITY, this::toMessage);
+        chatList = new JList<>(chatModel);
+        chatList.setCellRenderer(new MessageRenderer());
+        chatList.setBackground(Color.WHITE);
+        chatList.setSelectionModel(new DefaultListSelectionModel() {
+            @Override
+            public void setSelectionInterval(int index0, int index1) {
+                // Messages are not selectable
+            }
+        });
+        chatList.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        // Row heights depend on the width, so recompute them when the list is resized
+        chatList.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                chatList.setFixedCellHeight(10);
+                chatList.setFixedCellHeight(-1);
+            }
+        });
 
         // Scroll pane
-        JScrollPane scrollPane = new JScrollPane(chatArea);
-        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-        scrollPane.setBorder(BorderFactory.createLineBorder(new Color(189, 195, 199), 1));
+        chatScrollPane = new JScrollPane(chatList);
+        chatScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        chatScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+        chatScrollPane.setBorder(BorderFactory.createLineBorder(new Color(189, 195, 199), 1));
+        chatScrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        chatScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> pageAtScrollEdge());
 
-        chatPanel.add(scrollPane, BorderLayout.CENTER);
+        chatPanel.add(chatScrollPane, BorderLayout.CENTER);
 
         return chatPanel;
     }
@@ -311,27 +350,50 @@ public class ChatbotGUI extends JFrame {
         sendButton.setEnabled(false);
         thinkingBar.setVisible(true);
 
-        // Display user message
-        appendMessage("You", userInput, USER_MESSAGE_COLOR);
+        // Display user message; the engine records it, then the reply, as the next history turns
+        long userTurn = chatbotEngine.getHistory().size();
+        addMessage("You", userInput, USER_MESSAGE_COLOR, userTurn);
         inputField.setText("");
 
         // Update status
         statusLabel.setText("<html><div style='text-align: center;'>Processing your message...</div></html>");
 
-        // Process in background to keep UI responsive
-        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+        // Process in background to keep UI responsive; the reply is rendered chunk by chunk
+        SwingWorker<String, String> worker = new SwingWorker<String, String>() {
+            private boolean started = false;
+
             @Override
             protected String doInBackground() throws Exception {
-                // Simulate thinking time for better UX
-                Thread.sleep(500 + (int)(Math.random() * 1000));
-                return chatbotEngine.processInput(userInput);
+                return chatbotEngine.processInput(userInput, chunk -> {
+                    publish(chunk);
+                    if (TYPING_DELAY_MILLIS > 0) {
+                        try {
+                            Thread.sleep(TYPING_DELAY_MILLIS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+
+            @Override
+            protected void process(java.util.List<String> chunks) {
+                if (!started) {
+                    addMessage("CodeBot", "", BOT_MESSAGE_COLOR, userTurn + 1);
+                    started = true;
+                }
+                StringBuilder text = new StringBuilder();
+                for (String chunk : chunks) {
+                    text.append(chunk);
+                }
+                chatModel.appendToLast(text.toString());
+                scrollToBottom();
             }
 
             @Override
             protected void done() {
                 try {
-                    String response = get();
-                    appendMessage("CodeBot", response, BOT_MESSAGE_COLOR);
+                    get();
                     statusLabel.setText("<html><div style='text-align: center;'>Ready for your next message!</div></html>");
                 } catch (Exception e) {
                     appendMessage("CodeBot", "Sorry, I encountered an error processing your message. Please try again!",
@@ -351,23 +413,114 @@ public class ChatbotGUI extends JFrame {
     }
 
     /**
-     * Append message to chat area with styling
+     * Append a view-only message (welcome text, errors) that is not part of the history
      */
     private void appendMessage(String sender, String message, Color color) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
+        addMessage(sender, message, color, -1);
+    }
 
-        String formattedMessage = String.format(
-                "[%s] %s: %s\n\n",
-                timestamp, sender, message
-        );
+    /**
+     * Append a message to the chat view and scroll to it
+     */
+    private void addMessage(String sender, String message, Color color, long historyIndex) {
+        chatModel.add(new ChatListModel.Message(System.currentTimeMillis(), sender, message, color, historyIndex));
+        scrollToBottom();
+    }
+
+    /**
+     * Scroll to the newest message; repeated requests before the next repaint are coalesced
+     */
+    private void scrollToBottom() {
+        if (scrollPending) return;
+        scrollPending = true;
+        SwingUtilities.invokeLater(() -> {
+            scrollPending = false;
+            int last = chatModel.getSize() - 1;
+            if (last >= 0) {
+                chatList.ensureIndexIsVisible(last);
+            }
+        });
+    }
 
-        chatArea.append(formattedMessage);
-        // Force scroll to bottom
+    /**
+     * Page history in when the view is scrolled to its top or bottom edge
+     */
+    private void pageAtScrollEdge() {
+        if (scrollPending) return;
+        JScrollBar bar = chatScrollPane.getVerticalScrollBar();
+        boolean atTop = bar.getValue() == bar.getMinimum();
+        boolean atBottom = bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum();
+        if (!(atTop && chatModel.hasOlder()) && !(atBottom && chatModel.hasNewer())) return;
+
+        scrollPending = true;
         SwingUtilities.invokeLater(() -> {
-            chatArea.setCaretPosition(chatArea.getDocument().getLength());
+            scrollPending = false;
+
+            // Keep the first visible message in place while rows are added and trimmed
+            int anchorIndex = chatList.getFirstVisibleIndex();
+            if (anchorIndex < 0) return;
+            ChatListModel.Message anchor = chatModel.getElementAt(anchorIndex);
+            int anchorOffset = chatList.getCellBounds(anchorIndex, anchorIndex).y - bar.getValue();
+
+            if (atTop) {
+                chatModel.loadOlder(CHAT_PAGE_SIZE);
+            } else {
+                chatModel.loadNewer(CHAT_PAGE_SIZE);
+            }
+
+            int newIndex = chatModel.indexOf(anchor);
+            if (newIndex >= 0) {
+                bar.setValue(chatList.getCellBounds(newIndex, newIndex).y - anchorOffset);
+            }
         });
     }
 
+    /**
+     * Chat view message for a history turn
+     */
+    private ChatListModel.Message toMessage(ConversationHistory.Turn turn) {
+        boolean user = turn.getSpeaker() == ConversationHistory.Speaker.USER;
+        return new ChatListModel.Message(turn.getTimestamp(), user ? "You" : "CodeBot", turn.getText(),
+                user ? USER_MESSAGE_COLOR : BOT_MESSAGE_COLOR, -1);
+    }
+
+    /**
+     * Renders one message as wrapped text with a colored sender stripe
+     * Only visible rows are rendered; the row height follows the list width
+     */
+    private static class MessageRenderer extends JTextArea implements ListCellRenderer<ChatListModel.Message> {
+
+        MessageRenderer() {
+            setLineWrap(true);
+            setWrapStyleWord(true);
+            setFont(new Font("Dialog", Font.PLAIN, 14));
+            setForeground(TEXT_COLOR);
+            setBackground(Color.WHITE);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends ChatListModel.Message> list,
+                                                      ChatListModel.Message message, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            String timestamp = LocalTime.ofInstant(Instant.ofEpochMilli(message.getTimestamp()), ZoneId.systemDefault())
+                    .format(MESSAGE_TIME_FORMAT);
+            setText("[" + timestamp + "] " + message.getSender() + ": " + message.getText());
+            setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createEmptyBorder(0, 0, 12, 0),
+                    BorderFactory.createCompoundBorder(
+                            BorderFactory.createMatteBorder(0, 3, 0, 0, message.getColor()),
+                            BorderFactory.createEmptyBorder(2, 8, 2, 4))));
+
+            // Wrap to the list width so the preferred height matches the rendered text
+            Insets listInsets = list.getInsets();
+            int width = list.getWidth() - listInsets.left - listInsets.right;
+            if (width > 0) {
+                setSize(width, Short.MAX_VALUE);
+            }
+            return this;
+        }
+    }
+
     /**
      * Clear chat history
      */
@@ -380,7 +533,7 @@ public class ChatbotGUI extends JFrame {
         );
 
         if (choice == JOptionPane.YES_OPTION) {
-            chatArea.setText("");
+            chatModel.clear();
             showWelcomeMessage();
             statusLabel.setText("<html><div style='text-align: center;'>Chat cleared!<br/>Ready for a fresh start!</div></html>");
         }
@@ -394,16 +547,29 @@ public class ChatbotGUI extends JFrame {
         fileChooser.setSelectedFile(new java.io.File("chatbot_conversation_" +
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".txt"));
 
+        // Saving again to the same file only appends what is new
+        if (lastSaveFile != null) {
+            fileChooser.setSelectedFile(lastSaveFile);
+        }
+
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try {
-                chatbotEngine.saveConversation(fileChooser.getSelectedFile().getAbsolutePath());
-                JOptionPane.showMessageDialog(this, "Conversation saved successfully!",
-                        "Save Complete", JOptionPane.INFORMATION_MESSAGE);
-                statusLabel.setText("<html><div style='text-align: center;'>Conversation saved!</div></html>");
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Error saving conversation: " + e.getMessage(),
-                        "Save Error", JOptionPane.ERROR_MESSAGE);
-            }
+            java.io.File file = fileChooser.getSelectedFile();
+            statusLabel.setText("<html><div style='text-align: center;'>Saving conversation...</div></html>");
+
+            // Export runs in the background; the dialog is shown back on the EDT
+            chatbotEngine.saveConversationAsync(file.toPath()).whenComplete((path, error) ->
+                    SwingUtilities.invokeLater(() -> {
+                        if (error == null) {
+                            lastSaveFile = file;
+                            JOptionPane.showMessageDialog(this, "Conversation saved successfully!",
+                                    "Save Complete", JOptionPane.INFORMATION_MESSAGE);
+                            statusLabel.setText("<html><div style='text-align: center;'>Conversation saved!</div></html>");
+                        } else {
+                            Throwable cause = error.getCause() != null ? error.getCause() : error;
+                            JOptionPane.showMessageDialog(this, "Error saving conversation: " + cause.getMessage(),
+                                    "Save Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }));
         }
     }
 
@@ -411,42 +577,69 @@ public class ChatbotGUI extends JFrame {
      * Show analytics dialog
      */
     private void showAnalytics() {
-        Map<String, Integer> analytics = chatbotEngine.getTopicAnalytics();
+        TopicCounters.Snapshot analytics = chatbotEngine.getTopicSnapshot();
 
         StringBuilder analyticsText = new StringBuilder();
         analyticsText.append("📊 CONVERSATION ANALYTICS\n\n");
         analyticsText.append("Topic Distribution:\n");
         analyticsText.append("─────────────────────\n");
 
-        analytics.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .forEach(entry -> {
-                    if (entry.getValue() > 0) {
-                        analyticsText.append(String.format("• %s: %d messages\n",
-                                entry.getKey(), entry.getValue()));
-                    }
-                });
+        for (ChatbotEngine.Intent intent : analytics.byFrequency()) {
+            if (analytics.get(intent) > 0) {
+                analyticsText.append(String.format("• %s: %d messages\n",
+                        intent, analytics.get(intent)));
+            }
+        }
 
         analyticsText.append("\n🔍 INSIGHTS:\n");
         analyticsText.append("─────────────────────\n");
 
-        String mostDiscussed = analytics.entrySet().stream()
-                .filter(entry -> entry.getValue() > 0)
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("No topics yet");
+        ChatbotEngine.Intent mostDiscussedIntent = analytics.mostDiscussed();
+        String mostDiscussed = mostDiscussedIntent != null ? mostDiscussedIntent.toString() : "No topics yet";
 
         analyticsText.append("• Most discussed topic: ").append(mostDiscussed).append("\n");
 
-        int totalMessages = analytics.values().stream().mapToInt(Integer::intValue).sum();
+        long totalMessages = analytics.getTotal();
         analyticsText.append("• Total interactions: ").append(totalMessages).append("\n");
 
         if (totalMessages > 0) {
             analyticsText.append("• Average topic engagement: ")
-                    .append(String.format("%.1f", totalMessages / (double) analytics.size()))
+                    .append(String.format("%.1f", totalMessages / (double) analytics.getTopicCount()))
                     .append(" messages per topic\n");
         }
 
+        ResponseCache<?, ?> responseCache = chatbotEngine.getModel().getResponseGenerator().getResponseCache();
+        analyticsText.append("• Response cache: ")
+                .append(String.format("%.1f%% hits, %.1f%% misses (%d entries)",
+                        responseCache.getHitRate() * 100, responseCache.getMissRate() * 100, responseCache.size()))
+                .append("\n");
+
+        LearnedResponseStore learned = chatbotEngine.getLearnedResponses();
+        analyticsText.append(String.format("• Learned patterns: %d (%.1f%% recurring, %d evicted)\n",
+                learned.size(), learned.getRecurrenceRate() * 100, learned.getEvictionCount()));
+
+        ChatbotModel.ReloadResult reload = chatbotEngine.getModel().getLastReload();
+        analyticsText.append("• Knowledge base: ").append(chatbotEngine.getModel().getKnowledgeBase().size())
+                .append(" entries");
+        if (reload != null) {
+            analyticsText.append(String.format(", reloaded at %tT in %d ms", reload.getTimestamp(),
+                    reload.getDurationMillis()));
+        }
+        analyticsText.append("\n");
+
+        SpellingIndex spelling = chatbotEngine.getModel().getKnowledgeBase().getSpellingIndex();
+        if (spelling != null) {
+            analyticsText.append(String.format("• Spelling index: %d words, %d deletes, %d KB (max distance %d)\n",
+                    spelling.size(), spelling.getDeleteCount(), spelling.getMemoryBytes() / 1024,
+                    spelling.getMaxDistance()));
+        }
+
+        SemanticIndex semantic = chatbotEngine.getModel().getKnowledgeBase().getSemanticIndex();
+        if (semantic != null) {
+            analyticsText.append(String.format("• Semantic index: %d vectors x %d dimensions, %d KB\n",
+                    semantic.size(), semantic.getDimensions(), semantic.getMemoryBytes() / 1024));
+        }
+
         JTextArea analyticsArea = new JTextArea(analyticsText.toString());
         analyticsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
         analyticsArea.setEditable(false);
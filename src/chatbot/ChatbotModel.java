@@ -0,0 +1,196 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Shared, read-only chatbot model: NLP lexicons and patterns, response templates
+ * and the knowledge-base index. It is built once and used by every session
+ * concurrently; per-user state lives in SessionContext
+ *
+ * The knowledge base can be reloaded while the model is in use: a new index is built
+ * on the side and replaces the old one with a single reference write, so lookups never
+ * wait and always see either the complete old or the complete new index
+ */
+public class ChatbotModel {
+    private static final String DEFAULT_KNOWLEDGE_BASE_FILE = "resources/knowledge_base.txt";
+
+    private final NLPProcessor nlpProcessor;
+    private final ResponseGenerator responseGenerator;
+    private final Path knowledgeBaseFile;
+    private final boolean watchKnowledgeBase;
+    private volatile KnowledgeBase knowledgeBase;
+
+    // Outcome of the latest reload, or null before the first one
+    private volatile ReloadResult lastReload;
+    private KnowledgeBaseWatcher watcher;
+
+    /**
+     * Statistics of one knowledge-base reload
+     */
+    public static final class ReloadResult {
+        private final int previousEntries;
+        private final int entries;
+        private final long durationMillis;
+        private final long timestamp;
+
+        private ReloadResult(int previousEntries, int entries, long durationMillis, long timestamp) {
+            this.previousEntries = previousEntries;
+            this.entries = entries;
+            this.durationMillis = durationMillis;
+            this.timestamp = timestamp;
+        }
+
+        public int getPreviousEntries() {
+            return previousEntries;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return entries + " entries (was " + previousEntries + ") in " + durationMillis + " ms";
+        }
+    }
+
+    public ChatbotModel() {
+        this.nlpProcessor = new NLPProcessor();
+        this.responseGenerator = new ResponseGenerator();
+        this.knowledgeBaseFile = Paths.get(System.getProperty("chatbot.knowledgeBase", DEFAULT_KNOWLEDGE_BASE_FILE));
+        this.watchKnowledgeBase = Boolean.getBoolean("chatbot.knowledgeBase.watch")
+                && Files.isRegularFile(knowledgeBaseFile);
+        this.knowledgeBase = loadKnowledgeBase();
+        if (watchKnowledgeBase) {
+            startWatching();
+        }
+    }
+
+    public NLPProcessor getNlpProcessor() {
+        return nlpProcessor;
+    }
+
+    public ResponseGenerator getResponseGenerator() {
+        return responseGenerator;
+    }
+
+    /**
+     * Current knowledge-base index; callers should read it once per lookup
+     */
+    public KnowledgeBase getKnowledgeBase() {
+        return knowledgeBase;
+    }
+
+    /**
+     * Statistics of the latest knowledge-base reload, or null if it was never reloaded
+     */
+    public ReloadResult getLastReload() {
+        return lastReload;
+    }
+
+    /**
+     * Rebuild the knowledge base from its file and swap it in
+     * The new index is validated first; if the file cannot be read or holds no entries,
+     * the current index stays in place and an IOException is thrown
+     */
+    public synchronized ReloadResult reloadKnowledgeBase() throws IOException {
+        long start = System.nanoTime();
+        KnowledgeBase reloaded;
+        try {
+            reloaded = KnowledgeBaseLoader.read(knowledgeBaseFile, nlpProcessor);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed knowledge base " + knowledgeBaseFile + ": " + e.getMessage(), e);
+        }
+        if (reloaded.size() == 0) {
+            throw new IOException("Knowledge base " + knowledgeBaseFile + " has no entries; keeping the current one");
+        }
+
+        int previousEntries = knowledgeBase.size();
+        knowledgeBase = reloaded;
+        ReloadResult result = new ReloadResult(previousEntries, reloaded.size(),
+                (System.nanoTime() - start) / 1_000_000, System.currentTimeMillis());
+        lastReload = result;
+        return result;
+    }
+
+    /**
+     * Reload the knowledge base whenever its file changes (started by chatbot.knowledgeBase.watch=true)
+     */
+    public synchronized void startWatching() {
+        if (watcher != null) return;
+        try {
+            watcher = new KnowledgeBaseWatcher(this, knowledgeBaseFile);
+        } catch (IOException e) {
+            System.err.println("Could not watch knowledge base " + knowledgeBaseFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop reloading the knowledge base on file changes
+     */
+    public synchronized void stopWatching() {
+        if (watcher == null) return;
+        watcher.close();
+        watcher = null;
+    }
+
+    /**
+     * Load knowledge base and index its patterns
+     * A file on disk (system property chatbot.knowledgeBase, or resources/knowledge_base.txt)
+     * is memory-mapped, or copied into memory if it is watched for changes; otherwise the
+     * classpath resource or the built-in defaults are used
+     */
+    private KnowledgeBase loadKnowledgeBase() {
+        Path file = knowledgeBaseFile;
+        try {
+            if (Files.isRegularFile(file)) {
+                return watchKnowledgeBase
+                        ? KnowledgeBaseLoader.read(file, nlpProcessor)
+                        : KnowledgeBaseLoader.load(file, nlpProcessor);
+            }
+
+            try (InputStream is = ChatbotModel.class.getClassLoader().getResourceAsStream("knowledge_base.txt")) {
+                byte[] content = is != null ? is.readAllBytes()
+                        : getDefaultKnowledgeBase().getBytes(StandardCharsets.UTF_8);
+                return KnowledgeBaseLoader.parse(ByteBuffer.wrap(content), nlpProcessor);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load knowledge base: " + e.getMessage());
+            return KnowledgeBaseLoader.parse(
+                    ByteBuffer.wrap(getDefaultKnowledgeBase().getBytes(StandardCharsets.UTF_8)), nlpProcessor);
+        }
+    }
+
+    /**
+     * Get default knowledge base if file not found
+     */
+    private static String getDefaultKnowledgeBase() {
+        return """
+            hello|Hello! How can I help you today?
+            hi|Hi there! What's on your mind?
+            good morning|Good morning! Hope you're having a great day!
+            how are you|I'm doing well, thank you for asking! How about you?
+            what is your name|I'm an AI chatbot created for the CodeAlpha project. You can call me CodeBot!
+            what can you do|I can chat with you, answer questions, and learn from our conversations!
+            thank you|You're very welcome! Happy to help!
+            bye|Goodbye! It was nice chatting with you!
+            help|I'm here to chat and answer your questions. Try asking me about technology, general topics, or just have a conversation!
+            what time is it|Let me check the current time for you.
+            tell me a joke|Why don't scientists trust atoms? Because they make up everything!
+            who created you|I was created as part of a CodeAlpha internship project using Java and NLP techniques.
+            """;
+    }
+}
@@ -0,0 +1,314 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import chatbot.ChatbotEngine.Intent;
+
+/**
+ * Bounded conversation history
+ * The most recent turns live in a fixed-capacity ring buffer; older turns are spilled
+ * to an append-only file on disk. Callers read history page by page (or through an
+ * iterator that pages internally) instead of copying the whole conversation
+ *
+ * If the spill segment fails, or once the history is closed, the turns it held are gone;
+ * their indices stay taken and read back as a placeholder turn, so later turns keep their
+ * positions
+ */
+public class ConversationHistory implements Iterable<ConversationHistory.Turn> {
+
+    // Spilled records between two entries of the sparse offset index
+    private static final int SPILL_INDEX_INTERVAL = 256;
+
+    // Write buffer of the spill segment; journal replay spills long conversations in one burst
+    private static final int SPILL_BUFFER_BYTES = 64 * 1024;
+
+    // Turns fetched per page by the iterator
+    private static final int ITERATOR_PAGE_SIZE = 256;
+
+    // Stands in for turns whose spill segment was lost
+    private static final Turn UNAVAILABLE = new Turn(0, Speaker.BOT, null, "[earlier history unavailable]");
+
+    public enum Speaker {
+        USER, BOT
+    }
+
+    /**
+     * One message of the conversation
+     */
+    public static final class Turn {
+        private final long timestamp;
+        private final Speaker speaker;
+        private final Intent intent;
+        private final SentimentScore sentiment;
+        private final String text;
+
+        public Turn(long timestamp, Speaker speaker, Intent intent, String text) {
+            this(timestamp, speaker, intent, null, text);
+        }
+
+        public Turn(long timestamp, Speaker speaker, Intent intent, SentimentScore sentiment, String text) {
+            this.timestamp = timestamp;
+            this.speaker = speaker;
+            this.intent = intent;
+            this.sentiment = sentiment;
+            this.text = text;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Speaker getSpeaker() {
+            return speaker;
+        }
+
+        public Intent getIntent() {
+            return intent;
+        }
+
+        /**
+         * Sentiment of a user message, or null if not recorded
+         */
+        public SentimentScore getSentiment() {
+            return sentiment;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Legacy log format: "USER: text" or "BOT: text"
+         */
+        @Override
+        public String toString() {
+            return speaker + ": " + text;
+        }
+    }
+
+    private final Turn[] ring;
+    private long totalTurns;
+
+    // Spill segment for turns evicted from the ring; it holds turns [spillBase, spilledTurns)
+    private Path spillFile;
+    private DataOutputStream spillOut;
+    private long spillBytes;
+    private long spilledTurns;
+    private long spillBase;
+    private long[] spillIndex = new long[16];
+
+    public ConversationHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
+        this.ring = new Turn[capacity];
+    }
+
+    /**
+     * Record a turn, spilling the oldest in-memory turn to disk when the ring is full
+     */
+    public Turn add(Speaker speaker, Intent intent, String text) {
+        return add(new Turn(System.currentTimeMillis(), speaker, intent, text));
+    }
+
+    /**
+     * Record a complete turn (e.g. one replayed from a journal), keeping its timestamp
+     */
+    public synchronized Turn add(Turn turn) {
+        int slot = (int) (totalTurns % ring.length);
+        if (ring[slot] != null) {
+            spill(ring[slot]);
+        }
+        ring[slot] = turn;
+        totalTurns++;
+        return turn;
+    }
+
+    /**
+     * Total number of turns recorded, in memory and on disk
+     */
+    public synchronized long size() {
+        return totalTurns;
+    }
+
+    /**
+     * Up to count turns starting at the given turn index (0 = oldest)
+     * Turns whose spill segment was lost are returned as a placeholder
+     */
+    public synchronized List<Turn> page(long fromIndex, int count) {
+        List<Turn> turns = new ArrayList<>(Math.max(0, (int) Math.min(count, totalTurns - fromIndex)));
+        long index = Math.max(0, fromIndex);
+        long end = Math.min(totalTurns, index + count);
+
+        for (; index < Math.min(end, spillBase); index++) {
+            turns.add(UNAVAILABLE);
+        }
+        if (index < spilledTurns) {
+            readSpilled(index, Math.min(end, spilledTurns), turns);
+            index = spilledTurns;
+        }
+        for (; index < end; index++) {
+            turns.add(ring[(int) (index % ring.length)]);
+        }
+        return turns;
+    }
+
+    /**
+     * The most recent turns, oldest first
+     */
+    public synchronized List<Turn> recent(int count) {
+        return page(Math.max(0, totalTurns - count), count);
+    }
+
+    /**
+     * Iterate over every turn, oldest first, one page at a time
+     */
+    @Override
+    public Iterator<Turn> iterator() {
+        return new Iterator<>() {
+            private final long end = size();
+            private long next = 0;
+            private List<Turn> page = Collections.emptyList();
+            private int pagePosition = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Turn next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (pagePosition == page.size()) {
+                    page = page(next, (int) Math.min(ITERATOR_PAGE_SIZE, end - next));
+                    pagePosition = 0;
+                }
+                next++;
+                return page.get(pagePosition++);
+            }
+        };
+    }
+
+    /**
+     * Close the spill segment and delete it
+     * The history stays usable: spilled turns read back as placeholders, and turns spilled
+     * after this go to a new segment
+     */
+    public synchronized void close() {
+        discardSpill();
+    }
+
+    /**
+     * Delete the spill segment; every turn spilled so far becomes unavailable
+     */
+    private void discardSpill() {
+        if (spillOut != null) {
+            try {
+                spillOut.close();
+            } catch (IOException e) {
+                System.err.println("Could not close history spill file: " + e.getMessage());
+            }
+            spillOut = null;
+        }
+        if (spillFile != null) {
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                System.err.println("Could not delete history spill file: " + e.getMessage());
+            }
+            spillFile = null;
+        }
+        spillBase = spilledTurns;
+        spillBytes = 0;
+    }
+
+    /**
+     * Append one turn to the spill segment
+     * Record layout: timestamp (long), speaker (byte), intent ordinal or -1 (byte),
+     * sentiment flag (byte) and positive/negative/neutral (3 floats) if set,
+     * UTF-8 length (int), UTF-8 bytes
+     */
+    private void spill(Turn turn) {
+        try {
+            if (spillOut == null) {
+                spillFile = Files.createTempFile("chatbot-history", ".spill");
+                spillFile.toFile().deleteOnExit();
+                spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile), SPILL_BUFFER_BYTES));
+            }
+
+            long record = spilledTurns - spillBase;
+            if (record % SPILL_INDEX_INTERVAL == 0) {
+                int slot = (int) (record / SPILL_INDEX_INTERVAL);
+                if (slot == spillIndex.length) {
+                    spillIndex = Arrays.copyOf(spillIndex, slot * 2);
+                }
+                spillIndex[slot] = spillBytes;
+            }
+
+            byte[] text = turn.text.getBytes(StandardCharsets.UTF_8);
+            spillOut.writeLong(turn.timestamp);
+            spillOut.writeByte(turn.speaker.ordinal());
+            spillOut.writeByte(turn.intent == null ? -1 : turn.intent.ordinal());
+            spillOut.writeBoolean(turn.sentiment != null);
+            if (turn.sentiment != null) {
+                spillOut.writeFloat((float) turn.sentiment.getPositive());
+                spillOut.writeFloat((float) turn.sentiment.getNegative());
+                spillOut.writeFloat((float) turn.sentiment.getNeutral());
+            }
+            spillOut.writeInt(text.length);
+            spillOut.write(text);
+            spillBytes += Long.BYTES + 3 + (turn.sentiment != null ? 3 * Float.BYTES : 0) + Integer.BYTES + text.length;
+            spilledTurns++;
+        } catch (IOException e) {
+            // A partial record may be in the file or its buffer: drop the segment, and count
+            // the turn so the indices of later turns do not shift
+            System.err.println("Could not spill conversation history: " + e.getMessage());
+            spilledTurns++;
+            discardSpill();
+        }
+    }
+
+    /**
+     * Read spilled turns [from, to) into the list; any that cannot be read are placeholders
+     */
+    private void readSpilled(long from, long to, List<Turn> turns) {
+        int expected = turns.size() + (int) (to - from);
+        try {
+            spillOut.flush();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile)))) {
+                long first = from - spillBase;
+                long last = to - spillBase;
+                long record = first - first % SPILL_INDEX_INTERVAL;
+                in.skipNBytes(spillIndex[(int) (record / SPILL_INDEX_INTERVAL)]);
+
+                Speaker[] speakers = Speaker.values();
+                Intent[] intents = Intent.values();
+                for (; record < last; record++) {
+                    long timestamp = in.readLong();
+                    Speaker speaker = speakers[in.readByte()];
+                    int intent = in.readByte();
+                    SentimentScore sentiment = null;
+                    if (in.readBoolean()) {
+                        sentiment = new SentimentScore(in.readFloat(), in.readFloat(), in.readFloat());
+                    }
+                    byte[] text = new byte[in.readInt()];
+                    in.readFully(text);
+                    if (record >= first) {
+                        turns.add(new Turn(timestamp, speaker, intent < 0 ? null : intents[intent], sentiment,
+                                new String(text, StandardCharsets.UTF_8)));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read conversation history: " + e.getMessage());
+        }
+        while (turns.size() < expected) {
+            turns.add(UNAVAILABLE);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of one conversation
+ * Turns are handed to a shared JournalWriter and written in the background as
+ * checksummed segments of TurnCodec records, one segment per group commit.
+ * Opening a journal replays its turns and cuts off a torn or corrupt tail left by
+ * a crash. Text exports are incremental views over the journal: re-exporting to
+ * the file last exported to only appends the turns journaled since that export
+ */
+public class ConversationJournal {
+
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    private final JournalWriter writer;
+    private final Path file;
+    private final FileChannel channel;
+
+    // Bytes written so far; updated by the writer thread, read after sync()
+    private volatile long size;
+
+    // Progress of the last text export; only one target is remembered
+    private ExportState lastExport;
+
+    private static final class ExportState {
+        private final Path target;
+        private final long journalOffset;
+        private final long turnsEnd;
+        private final long fileSize;
+
+        private ExportState(Path target, long journalOffset, long turnsEnd, long fileSize) {
+            this.target = target;
+            this.journalOffset = journalOffset;
+            this.turnsEnd = turnsEnd;
+            this.fileSize = fileSize;
+        }
+    }
+
+    /**
+     * Open or create a journal; existing turns are passed to the replay action (if any)
+     * in order, and anything after the last intact segment is truncated
+     */
+    ConversationJournal(JournalWriter writer, Path file, Consumer<ConversationHistory.Turn> replay) throws IOException {
+        this.writer = writer;
+        this.file = file;
+        this.channel = openChannel(file);
+
+        long validEnd = TurnCodec.FILE_HEADER_BYTES;
+        long fileSize = channel.size();
+        if (fileSize == 0) {
+            ByteBuffer header = ByteBuffer.allocate(TurnCodec.FILE_HEADER_BYTES).putInt(TurnCodec.FILE_MAGIC);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, 0);
+            }
+        } else {
+            validEnd = scan(channel, TurnCodec.FILE_HEADER_BYTES, fileSize, replay);
+            if (validEnd < fileSize) {
+                System.err.println("Journal " + file + ": discarding " + (fileSize - validEnd)
+                        + " bytes after the last intact segment");
+                channel.truncate(validEnd);
+            }
+        }
+        this.size = validEnd;
+        channel.position(validEnd);
+    }
+
+    /**
+     * Open the journal file, moving aside a file that is not a journal
+     */
+    private static FileChannel openChannel(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+        if (channel.size() == 0) return channel;
+
+        ByteBuffer magic = ByteBuffer.allocate(TurnCodec.FILE_HEADER_BYTES);
+        channel.read(magic, 0);
+        if (magic.position() == TurnCodec.FILE_HEADER_BYTES && magic.getInt(0) == TurnCodec.FILE_MAGIC) {
+            return channel;
+        }
+
+        channel.close();
+        Path aside = file.resolveSibling(file.getFileName() + ".unreadable");
+        System.err.println("Journal " + file + " has an unknown format; moving it to " + aside);
+        Files.move(file, aside, StandardCopyOption.REPLACE_EXISTING);
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Queue a turn for writing; never blocks on I/O
+     */
+    public void append(ConversationHistory.Turn turn) {
+        writer.append(this, turn);
+    }
+
+    /**
+     * Future completed when every turn appended so far is written
+     */
+    public CompletableFuture<Void> sync() {
+        return writer.barrier(this, false);
+    }
+
+    /**
+     * Write pending turns, sync and close the file
+     */
+    public CompletableFuture<Void> close() {
+        return writer.barrier(this, true);
+    }
+
+    /**
+     * Read the journaled turns in [fromOffset, toOffset) bytes; offsets are segment boundaries
+     */
+    public void forEachTurn(long fromOffset, long toOffset, Consumer<ConversationHistory.Turn> action) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            scan(in, Math.max(fromOffset, TurnCodec.FILE_HEADER_BYTES), toOffset, action);
+        }
+    }
+
+    /**
+     * Bytes of intact journal written so far
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Read segments sequentially through a large buffer, verifying each checksum
+     * Returns the end offset of the last intact segment
+     */
+    private static long scan(FileChannel channel, long from, long to, Consumer<ConversationHistory.Turn> action)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_BUFFER_BYTES, Math.max(64, to - from)));
+        buffer.flip();
+        long readPosition = from;
+        long validEnd = from;
+        CRC32C crc = new CRC32C();
+
+        while (true) {
+            if (buffer.remaining() < TurnCodec.SEGMENT_HEADER_BYTES) {
+                buffer = fill(channel, buffer, readPosition, to, TurnCodec.SEGMENT_HEADER_BYTES);
+                readPosition = validEnd + buffer.remaining();
+                if (buffer.remaining() < TurnCodec.SEGMENT_HEADER_BYTES) break;
+            }
+
+            int length = buffer.getInt(buffer.position());
+            int count = buffer.getInt(buffer.position() + Integer.BYTES);
+            int checksum = buffer.getInt(buffer.position() + 2 * Integer.BYTES);
+            long segmentBytes = TurnCodec.SEGMENT_HEADER_BYTES + (long) length;
+            if (length < 0 || count < 0 || validEnd + segmentBytes > to) break;
+
+            if (buffer.remaining() < segmentBytes) {
+                buffer = fill(channel, buffer, readPosition, to, (int) segmentBytes);
+                readPosition = validEnd + buffer.remaining();
+                if (buffer.remaining() < segmentBytes) break;
+            }
+
+            ByteBuffer payload = buffer.slice(buffer.position() + TurnCodec.SEGMENT_HEADER_BYTES, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) break;
+
+            if (action != null) {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        action.accept(TurnCodec.decode(payload));
+                    }
+                } catch (IllegalArgumentException | BufferUnderflowException e) {
+                    break;
+                }
+            }
+            buffer.position(buffer.position() + (int) segmentBytes);
+            validEnd += segmentBytes;
+        }
+        return validEnd;
+    }
+
+    /**
+     * Top up the buffer from the file until it holds at least needed bytes (or the end is reached)
+     * The buffer is compacted first, and replaced by a larger one for oversized segments
+     */
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, long readPosition, long to, int needed)
+            throws IOException {
+        if (buffer.capacity() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(needed);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+
+        while (buffer.position() < needed && readPosition < to) {
+            int limit = (int) Math.min(buffer.capacity(), buffer.position() + (to - readPosition));
+            buffer.limit(limit);
+            int read = channel.read(buffer, readPosition);
+            if (read < 0) break;
+            readPosition += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Export the conversation as text: header, one "SPEAKER: text" line per turn, trailer
+     * If the target is the last one exported to and still holds that export, only the
+     * trailer is rewritten and the new turns appended; otherwise the file is written from scratch
+     */
+    public synchronized void exportText(Path target, String header, String trailer) throws IOException {
+        Path key = target.toAbsolutePath().normalize();
+        ExportState previous = lastExport != null && lastExport.target.equals(key) ? lastExport : null;
+        long end = size;
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            Writer text = new BufferedWriter(Channels.newWriter(out, StandardCharsets.UTF_8));
+            long from;
+            if (previous != null && out.size() == previous.fileSize) {
+                out.truncate(previous.turnsEnd);
+                out.position(previous.turnsEnd);
+                from = previous.journalOffset;
+            } else {
+                out.truncate(0);
+                text.write(header);
+                from = TurnCodec.FILE_HEADER_BYTES;
+            }
+
+            try {
+                forEachTurn(from, end, turn -> {
+                    try {
+                        text.write(turn.toString());
+                        text.write(System.lineSeparator());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            text.flush();
+            long turnsEnd = out.position();
+            text.write(trailer);
+            text.flush();
+            lastExport = new ExportState(key, end, turnsEnd, out.size());
+        }
+    }
+
+    /**
+     * Write the records in the buffer as one checksummed segment
+     * A failed write is cut back to the segment start, so a torn segment cannot hide
+     * the segments written after it from replay
+     */
+    void writeSegment(ByteBuffer records, int count) {
+        CRC32C crc = new CRC32C();
+        crc.update(records.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(TurnCodec.SEGMENT_HEADER_BYTES)
+                .putInt(records.remaining()).putInt(count).putInt((int) crc.getValue());
+        header.flip();
+
+        ByteBuffer[] segment = {header, records};
+        long start = size;
+        long written = 0;
+        try {
+            while (records.hasRemaining()) {
+                written += channel.write(segment);
+            }
+            size = start + written;
+        } catch (IOException e) {
+            System.err.println("Could not write journal " + file + ": " + e.getMessage());
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateError) {
+                // The partial segment stays; keep size in step with the channel position
+                System.err.println("Could not truncate journal " + file + ": " + truncateError.getMessage());
+                size = start + written;
+            }
+        }
+    }
+
+    /**
+     * Write a turn too large for the writer's buffer as a segment of its own
+     */
+    void writeLarge(ConversationHistory.Turn turn) {
+        byte[] text = turn.getText().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer records = ByteBuffer.allocate(TurnCodec.maxEncodedSize(text.length));
+        TurnCodec.encode(turn, text, records);
+        records.flip();
+        writeSegment(records, 1);
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close journal " + file + ": " + e.getMessage());
+        }
+    }
+}
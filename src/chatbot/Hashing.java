@@ -0,0 +1,80 @@
+package chatbot;
+
+/**
+ * Hash functions shared by the dictionaries and hashed-feature models
+ * FNV-1a steps hash text one character at a time, so callers hash tokens in place
+ * without allocating; the murmur3 finalizers avalanche the result before it is masked
+ * into buckets or slots. Feature hashes are persisted in trained intent models, so
+ * none of these may change
+ */
+final class Hashing {
+
+    static final int FNV32_OFFSET = 0x811C9DC5;
+    static final long FNV64_OFFSET = 0xCBF29CE484222325L;
+
+    private static final int FNV32_PRIME = 0x01000193;
+    private static final long FNV64_PRIME = 0x100000001B3L;
+    private static final int GOLDEN_RATIO = 0x9E3779B1;
+
+    private Hashing() {
+    }
+
+    /**
+     * One FNV-1a step (32-bit)
+     */
+    static int fnv1a(int hash, char c) {
+        return (hash ^ c) * FNV32_PRIME;
+    }
+
+    /**
+     * One FNV-1a step (64-bit)
+     */
+    static long fnv1a(long hash, char c) {
+        return (hash ^ c) * FNV64_PRIME;
+    }
+
+    /**
+     * One step of String.hashCode, which TokenDictionary and the normalizer share
+     */
+    static int stringHash(int hash, char c) {
+        return 31 * hash + c;
+    }
+
+    /**
+     * Order-dependent hash of a pair, e.g. the two words of a bigram
+     */
+    static int combine(int first, int second) {
+        return first * GOLDEN_RATIO + second;
+    }
+
+    /**
+     * Final avalanche so nearby hashes spread over the buckets (murmur3 fmix32)
+     */
+    static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * 64-bit avalanche (murmur3 fmix64)
+     */
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Characters that make up a word for the phrase, spelling and semantic indexes
+     */
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,254 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import chatbot.ChatbotEngine.Intent;
+
+/**
+ * Multinomial Naive Bayes intent classifier over hashed sparse features
+ *
+ * Features are the unigrams and bigrams of the normalized tokens (plus one feature for
+ * a question mark), hashed into a fixed number of buckets. The model is two primitive
+ * arrays: log priors per intent and log likelihoods laid out bucket-major, so scoring a
+ * message adds one contiguous run of intent weights per feature: O(tokens x intents)
+ * with no allocation
+ */
+public final class IntentClassifier {
+
+    static final int DEFAULT_BUCKETS = 1 << 16;
+    static final double DEFAULT_ALPHA = 0.1;
+
+    // "CBNB"
+    private static final int MAGIC = 0x43424E42;
+
+    private static final Intent[] INTENTS = Intent.values();
+    private static final int QUESTION_MARK_FEATURE = 0x3F3F3F3F;
+
+    /**
+     * One labeled training utterance
+     */
+    public static final class Example {
+        private final Intent intent;
+        private final String text;
+
+        public Example(Intent intent, String text) {
+            this.intent = intent;
+            this.text = text;
+        }
+
+        public Intent getIntent() {
+            return intent;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    private final int bucketMask;
+    private final float[] priors;
+    private final float[] weights;
+
+    private IntentClassifier(int buckets, float[] priors, float[] weights) {
+        this.bucketMask = buckets - 1;
+        this.priors = priors;
+        this.weights = weights;
+    }
+
+    /**
+     * Train on labeled utterances, tokenized like user input
+     * buckets must be a power of two; alpha is the additive (Laplace) smoothing
+     */
+    public static IntentClassifier train(List<Example> examples, TokenDictionary dictionary, int buckets, double alpha) {
+        if (Integer.bitCount(buckets) != 1) {
+            throw new IllegalArgumentException("Bucket count must be a power of two: " + buckets);
+        }
+        int intents = INTENTS.length;
+        double[] counts = new double[buckets * intents];
+        double[] totals = new double[intents];
+        int[] documents = new int[intents];
+
+        TokenBuffer buffer = new TokenBuffer();
+        for (Example example : examples) {
+            TextNormalizer.normalize(example.text, buffer, dictionary);
+            int intent = example.intent.ordinal();
+            documents[intent]++;
+            int mask = buckets - 1;
+            int featureCount = forEachFeature(buffer, mask, bucket -> counts[bucket * intents + intent]++);
+            totals[intent] += featureCount;
+        }
+
+        float[] priors = new float[intents];
+        float[] weights = new float[buckets * intents];
+        for (int c = 0; c < intents; c++) {
+            priors[c] = (float) Math.log((documents[c] + 1.0) / (examples.size() + intents));
+            double denominator = Math.log(totals[c] + alpha * buckets);
+            for (int b = 0; b < buckets; b++) {
+                weights[b * intents + c] = (float) (Math.log(counts[b * intents + c] + alpha) - denominator);
+            }
+        }
+        return new IntentClassifier(buckets, priors, weights);
+    }
+
+    /**
+     * Fill scores (length at least Intent.values().length) with the unnormalized log
+     * posterior of each intent and return the ordinal of the best one
+     */
+    public int predict(TokenBuffer tokens, float[] scores) {
+        int intents = INTENTS.length;
+        System.arraycopy(priors, 0, scores, 0, intents);
+
+        // Same features as forEachFeature, inlined so scoring needs no capturing lambda
+        int previous = 0;
+        for (int i = 0; i < tokens.getTokenCount(); i++) {
+            int hash = hashToken(tokens, i);
+            addFeature(scores, Hashing.mix(hash));
+            if (i > 0) {
+                addFeature(scores, Hashing.mix(Hashing.combine(previous, hash)));
+            }
+            previous = hash;
+        }
+        if (containsQuestionMark(tokens)) {
+            addFeature(scores, Hashing.mix(QUESTION_MARK_FEATURE));
+        }
+        return argmax(scores);
+    }
+
+    /**
+     * Index of the highest score among the intents
+     */
+    static int argmax(float[] scores) {
+        int best = 0;
+        for (int c = 1; c < INTENTS.length; c++) {
+            if (scores[c] > scores[best]) best = c;
+        }
+        return best;
+    }
+
+    /**
+     * Posterior probability of the given intent under softmax of the log scores
+     */
+    static double confidence(float[] scores, int intent) {
+        double sum = 0;
+        for (int c = 0; c < INTENTS.length; c++) {
+            sum += Math.exp(scores[c] - scores[intent]);
+        }
+        return 1.0 / sum;
+    }
+
+    public int getBucketCount() {
+        return bucketMask + 1;
+    }
+
+    /**
+     * Bytes held by the model arrays
+     */
+    public long getModelBytes() {
+        return (long) (priors.length + weights.length) * Float.BYTES;
+    }
+
+    /**
+     * Write the model: magic, bucket count, intent names, priors and weights
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(getBucketCount());
+            out.writeInt(INTENTS.length);
+            for (Intent intent : INTENTS) {
+                out.writeUTF(intent.name());
+            }
+            for (float prior : priors) {
+                out.writeFloat(prior);
+            }
+            for (float weight : weights) {
+                out.writeFloat(weight);
+            }
+        }
+    }
+
+    /**
+     * Read a model written by save(); its intents must match the current Intent enum
+     */
+    public static IntentClassifier load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an intent model: " + file);
+            }
+            int buckets = in.readInt();
+            int intents = in.readInt();
+            if (Integer.bitCount(buckets) != 1 || intents != INTENTS.length) {
+                throw new IOException("Intent model " + file + " does not match this version");
+            }
+            for (Intent intent : INTENTS) {
+                if (!intent.name().equals(in.readUTF())) {
+                    throw new IOException("Intent model " + file + " was trained for different intents");
+                }
+            }
+            float[] priors = new float[intents];
+            for (int c = 0; c < intents; c++) {
+                priors[c] = in.readFloat();
+            }
+            float[] weights = new float[buckets * intents];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = in.readFloat();
+            }
+            return new IntentClassifier(buckets, priors, weights);
+        }
+    }
+
+    private void addFeature(float[] scores, int hash) {
+        int intents = INTENTS.length;
+        int base = (hash & bucketMask) * intents;
+        for (int c = 0; c < intents; c++) {
+            scores[c] += weights[base + c];
+        }
+    }
+
+    private interface BucketAction {
+        void accept(int bucket);
+    }
+
+    /**
+     * Visit the bucket of every feature of the tokens; returns the number of features
+     */
+    private static int forEachFeature(TokenBuffer tokens, int mask, BucketAction action) {
+        int features = 0;
+        int previous = 0;
+        for (int i = 0; i < tokens.getTokenCount(); i++) {
+            int hash = hashToken(tokens, i);
+            action.accept(Hashing.mix(hash) & mask);
+            features++;
+            if (i > 0) {
+                action.accept(Hashing.mix(Hashing.combine(previous, hash)) & mask);
+                features++;
+            }
+            previous = hash;
+        }
+        if (containsQuestionMark(tokens)) {
+            action.accept(Hashing.mix(QUESTION_MARK_FEATURE) & mask);
+            features++;
+        }
+        return features;
+    }
+
+    /**
+     * FNV-1a hash of a token's characters, read in place from the buffer
+     */
+    private static int hashToken(TokenBuffer tokens, int index) {
+        int hash = Hashing.FNV32_OFFSET;
+        for (int i = tokens.getTokenStart(index); i < tokens.getTokenEnd(index); i++) {
+            hash = Hashing.fnv1a(hash, tokens.charAt(i));
+        }
+        return hash;
+    }
+
+    private static boolean containsQuestionMark(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '?') return true;
+        }
+        return false;
+    }
+}
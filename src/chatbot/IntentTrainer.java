@@ -0,0 +1,177 @@
+package chatbot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import chatbot.ChatbotEngine.Intent;
+
+/**
+ * Command-line trainer for the Naive Bayes intent classifier
+ * Reads INTENT<TAB>utterance lines, holds out a share of them to report accuracy and
+ * per-message latency of the phrase rules, the classifier alone and both combination
+ * modes, then trains on every example and writes the model
+ *
+ * Usage: IntentTrainer labeled.tsv model.bin [--buckets N] [--alpha A] [--holdout F]
+ *        [--min-confidence C] [--seed S]
+ */
+public class IntentTrainer {
+
+    private static final int LATENCY_CALLS = 200_000;
+    private static final int WARMUP_CALLS = 50_000;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            usage("Missing labeled file or model file");
+        }
+        Path labeled = Paths.get(args[0]);
+        Path model = Paths.get(args[1]);
+        int buckets = IntentClassifier.DEFAULT_BUCKETS;
+        double alpha = IntentClassifier.DEFAULT_ALPHA;
+        double holdout = 0.2;
+        double minConfidence = 0.5;
+        long seed = 42;
+
+        for (int i = 2; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                usage(args[i] + " needs a value");
+            }
+            String value = args[++i];
+            try {
+                switch (args[i - 1]) {
+                    case "--buckets":
+                        buckets = Integer.parseInt(value);
+                        break;
+                    case "--alpha":
+                        alpha = Double.parseDouble(value);
+                        break;
+                    case "--holdout":
+                        holdout = Double.parseDouble(value);
+                        break;
+                    case "--min-confidence":
+                        minConfidence = Double.parseDouble(value);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    default:
+                        usage("Unknown option: " + args[i - 1]);
+                }
+            } catch (NumberFormatException e) {
+                usage("Invalid value for " + args[i - 1] + ": " + value);
+            }
+        }
+
+        List<IntentClassifier.Example> examples = readExamples(labeled);
+        if (examples.isEmpty()) {
+            usage("No labeled utterances in " + labeled);
+        }
+        NLPProcessor nlp = new NLPProcessor();
+        System.out.printf("%d labeled utterances, %d buckets, alpha %.3f%n", examples.size(), buckets, alpha);
+
+        // A holdout needs at least one utterance on each side
+        if (holdout > 0 && holdout < 1 && examples.size() >= 2) {
+            List<IntentClassifier.Example> shuffled = new ArrayList<>(examples);
+            Collections.shuffle(shuffled, new Random(seed));
+            int testSize = Math.min(shuffled.size() - 1, Math.max(1, (int) Math.round(shuffled.size() * holdout)));
+            List<IntentClassifier.Example> test = shuffled.subList(0, testSize);
+            List<IntentClassifier.Example> train = shuffled.subList(testSize, shuffled.size());
+            IntentClassifier classifier = IntentClassifier.train(train, nlp.getDictionary(), buckets, alpha);
+            report(nlp, classifier, test, minConfidence, train.size());
+        }
+
+        long start = System.nanoTime();
+        IntentClassifier classifier = IntentClassifier.train(examples, nlp.getDictionary(), buckets, alpha);
+        classifier.save(model);
+        System.out.printf("%nTrained on all %d utterances in %d ms; wrote %s (%d KB of weights)%n",
+                examples.size(), (System.nanoTime() - start) / 1_000_000, model, classifier.getModelBytes() / 1024);
+        System.out.println("Use it with -Dchatbot.intentModel=" + model + " [-Dchatbot.intentModel.mode=fallback|blend]");
+    }
+
+    /**
+     * Accuracy and latency of each way of classifying the held-out utterances
+     */
+    private static void report(NLPProcessor nlp, IntentClassifier classifier, List<IntentClassifier.Example> test,
+                               double minConfidence, int trainSize) {
+        System.out.printf("%nHoldout: trained on %d, tested on %d%n", trainSize, test.size());
+        System.out.printf("%-12s %9s %10s %10s%n", "mode", "accuracy", "p50 ns", "p99 ns");
+
+        TokenBuffer buffer = new TokenBuffer();
+        float[] scores = new float[Intent.values().length];
+        evaluate("rules", test, text -> nlp.classifyIntentByRules(text));
+        evaluate("classifier", test, text -> {
+            TextNormalizer.normalize(text, buffer, nlp.getDictionary());
+            return Intent.values()[classifier.predict(buffer, scores)];
+        });
+        nlp.setIntentClassifier(classifier, NLPProcessor.ClassifierMode.FALLBACK, minConfidence);
+        evaluate("fallback", test, nlp::classifyIntent);
+        nlp.setIntentClassifier(classifier, NLPProcessor.ClassifierMode.BLEND, minConfidence);
+        evaluate("blend", test, nlp::classifyIntent);
+        nlp.setIntentClassifier(null, NLPProcessor.ClassifierMode.FALLBACK, minConfidence);
+    }
+
+    private interface Classification {
+        Intent classify(String text);
+    }
+
+    private static void evaluate(String mode, List<IntentClassifier.Example> test, Classification classification) {
+        int correct = 0;
+        for (IntentClassifier.Example example : test) {
+            if (classification.classify(example.getText()) == example.getIntent()) {
+                correct++;
+            }
+        }
+
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            classification.classify(test.get(i % test.size()).getText());
+        }
+        long[] latencies = new long[LATENCY_CALLS];
+        for (int i = 0; i < LATENCY_CALLS; i++) {
+            String text = test.get(i % test.size()).getText();
+            long start = System.nanoTime();
+            classification.classify(text);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%-12s %8.1f%% %10d %10d%n", mode, 100.0 * correct / test.size(),
+                latencies[LATENCY_CALLS / 2], latencies[LATENCY_CALLS * 99 / 100]);
+    }
+
+    /**
+     * Read INTENT<TAB>utterance lines; blank lines and # comments are skipped
+     */
+    static List<IntentClassifier.Example> readExamples(Path file) throws IOException {
+        List<IntentClassifier.Example> examples = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    System.err.println(file + ":" + lineNumber + ": expected INTENT<TAB>utterance");
+                    continue;
+                }
+                try {
+                    Intent intent = Intent.valueOf(line.substring(0, tab).trim().toUpperCase(Locale.ROOT));
+                    examples.add(new IntentClassifier.Example(intent, line.substring(tab + 1).trim()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println(file + ":" + lineNumber + ": unknown intent " + line.substring(0, tab));
+                }
+            }
+        }
+        return examples;
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: IntentTrainer labeled.tsv model.bin [--buckets N] [--alpha A] [--holdout F]"
+                + " [--min-confidence C] [--seed S]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,267 @@
+package chatbot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background writer shared by conversation journals
+ * Callers only enqueue turns; one daemon thread drains everything queued so far,
+ * writes it through a reusable buffer and then syncs the touched files once per
+ * group according to the fsync policy (group commit)
+ */
+public class JournalWriter implements AutoCloseable {
+
+    /**
+     * When journal writes are forced to stable storage
+     */
+    public enum FsyncPolicy {
+        // Leave flushing to the operating system
+        NEVER,
+        // Force every group commit before acknowledging it
+        GROUP,
+        // Force dirty journals at most once per interval
+        INTERVAL
+    }
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_GROUP_SIZE = 4096;
+    private static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+
+    // Queue entries: a record to append, or a barrier completed once earlier entries are written
+    private static final class Entry {
+        private final ConversationJournal journal;
+        private final ConversationHistory.Turn turn;
+        private final CompletableFuture<Void> barrier;
+        private final boolean close;
+
+        private Entry(ConversationJournal journal, ConversationHistory.Turn turn,
+                      CompletableFuture<Void> barrier, boolean close) {
+            this.journal = journal;
+            this.turn = turn;
+            this.barrier = barrier;
+            this.close = close;
+        }
+    }
+
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // Held to check running and enqueue as one step, so nothing is queued after the writer's last drain
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+
+    // Writer-thread state
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private int bufferedRecords;
+    private final Set<ConversationJournal> dirty = new LinkedHashSet<>();
+    private long lastFsyncMillis = System.currentTimeMillis();
+
+    public JournalWriter(FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.thread = new Thread(this::run, "chatbot-journal-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Writer configured by system properties chatbot.journal.fsync (never, group, interval)
+     * and chatbot.journal.fsyncIntervalMillis
+     */
+    public static JournalWriter fromSystemProperties() {
+        FsyncPolicy policy = FsyncPolicy.INTERVAL;
+        String configured = System.getProperty("chatbot.journal.fsync");
+        if (configured != null) {
+            try {
+                policy = FsyncPolicy.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown journal fsync policy '" + configured + "', using " + policy);
+            }
+        }
+        return new JournalWriter(policy,
+                Long.getLong("chatbot.journal.fsyncIntervalMillis", DEFAULT_FSYNC_INTERVAL_MILLIS));
+    }
+
+    /**
+     * Open (or create) a journal file for appending through this writer
+     */
+    public ConversationJournal open(Path file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Open (or create) a journal file, replaying the turns already in it
+     */
+    public ConversationJournal open(Path file, Consumer<ConversationHistory.Turn> replay) throws IOException {
+        return new ConversationJournal(this, file, replay);
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * Queue a turn; throws IllegalStateException once the writer is closed rather than drop it
+     */
+    void append(ConversationJournal journal, ConversationHistory.Turn turn) {
+        enqueueLock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Journal writer is closed");
+            }
+            queue.add(new Entry(journal, turn, null, false));
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    /**
+     * Future completed once every entry queued before it has been written (and synced if the policy says so)
+     */
+    CompletableFuture<Void> barrier(ConversationJournal journal, boolean close) {
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        enqueueLock.lock();
+        try {
+            if (!running) {
+                barrier.completeExceptionally(new IllegalStateException("Journal writer is closed"));
+                return barrier;
+            }
+            queue.add(new Entry(journal, null, barrier, close));
+        } finally {
+            enqueueLock.unlock();
+        }
+        return barrier;
+    }
+
+    /**
+     * Write everything still queued and stop the writer thread
+     * The thread is woken with a no-op entry rather than interrupted, because an
+     * interrupt during I/O would close the journals' FileChannels
+     */
+    @Override
+    public void close() {
+        enqueueLock.lock();
+        try {
+            if (!running) return;
+            running = false;
+            queue.add(new Entry(null, null, null, false));
+        } finally {
+            enqueueLock.unlock();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Entry> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = fsyncPolicy == FsyncPolicy.INTERVAL && !dirty.isEmpty()
+                        ? queue.poll(Math.max(1, lastFsyncMillis + fsyncIntervalMillis - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS)
+                        : queue.take();
+                if (first != null) {
+                    group.add(first);
+                    queue.drainTo(group, MAX_GROUP_SIZE - 1);
+                }
+            } catch (InterruptedException e) {
+                // Not expected; keep draining until close() stops the loop
+                Thread.interrupted();
+            }
+            commit(group);
+            group.clear();
+        }
+        // Final sync of anything the interval policy has not forced yet
+        for (ConversationJournal journal : dirty) {
+            force(journal);
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Write one group, sync per policy, then release barriers and close requests
+     */
+    private void commit(List<Entry> group) {
+        ConversationJournal current = null;
+        for (Entry entry : group) {
+            if (entry.turn == null) continue;
+            if (entry.journal != current) {
+                flushBuffer(current);
+                current = entry.journal;
+            }
+            if (TurnCodec.encode(entry.turn, buffer)) {
+                bufferedRecords++;
+            } else {
+                flushBuffer(current);
+                if (TurnCodec.encode(entry.turn, buffer)) {
+                    bufferedRecords++;
+                } else {
+                    current.writeLarge(entry.turn);
+                }
+            }
+            dirty.add(current);
+        }
+        flushBuffer(current);
+
+        boolean force = fsyncPolicy == FsyncPolicy.GROUP
+                || fsyncPolicy == FsyncPolicy.INTERVAL
+                && System.currentTimeMillis() - lastFsyncMillis >= fsyncIntervalMillis;
+        for (Entry entry : group) {
+            if (entry.close) {
+                // Closing journals are always synced so nothing is lost on shutdown
+                if (dirty.remove(entry.journal)) {
+                    force(entry.journal);
+                }
+            }
+        }
+        if (force) {
+            for (ConversationJournal journal : dirty) {
+                force(journal);
+            }
+            dirty.clear();
+            lastFsyncMillis = System.currentTimeMillis();
+        } else if (fsyncPolicy == FsyncPolicy.NEVER) {
+            dirty.clear();
+        }
+
+        for (Entry entry : group) {
+            if (entry.close) {
+                entry.journal.closeChannel();
+            }
+            if (entry.barrier != null) {
+                entry.barrier.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Write the buffered records of one journal as a single segment
+     */
+    private void flushBuffer(ConversationJournal journal) {
+        if (journal == null || bufferedRecords == 0) return;
+        buffer.flip();
+        journal.writeSegment(buffer, bufferedRecords);
+        buffer.clear();
+        bufferedRecords = 0;
+    }
+
+    private void force(ConversationJournal journal) {
+        try {
+            journal.force();
+        } catch (IOException e) {
+            System.err.println("Could not sync journal " + journal.getFile() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package chatbot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the HTTP API
+ * Reads flat objects whose values are strings, numbers, booleans or null, and
+ * writes escaped string literals; nested values are rejected
+ */
+final class Json {
+
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse a flat JSON object; non-string values are kept as their literal text
+     * and null becomes a null entry
+     */
+    static Map<String, String> parseObject(String text) {
+        Json parser = new Json(text);
+        Map<String, String> fields = new LinkedHashMap<>();
+
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String key = parser.readString();
+                parser.expect(':');
+                fields.put(key, parser.readValue());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Trailing content");
+        }
+        return fields;
+    }
+
+    /**
+     * Append a value as a quoted, escaped JSON string (null becomes null)
+     */
+    static StringBuilder appendString(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    private String readValue() {
+        skipWhitespace();
+        if (position == text.length()) {
+            throw error("Missing value");
+        }
+        char c = text.charAt(position);
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            throw error("Nested values are not supported");
+        }
+
+        int start = position;
+        while (position < text.length() && ",}] \t\r\n".indexOf(text.charAt(position)) < 0) {
+            position++;
+        }
+        String literal = text.substring(start, position);
+        if (literal.equals("null")) return null;
+        if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+            return literal;
+        }
+        throw error("Invalid value '" + literal + "'");
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position == text.length()) break;
+            char escape = text.charAt(position++);
+            switch (escape) {
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    if (position + 4 > text.length()) throw error("Truncated unicode escape");
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escape);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + position);
+    }
+}
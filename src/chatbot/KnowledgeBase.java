@@ -0,0 +1,221 @@
+package chatbot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Indexed knowledge base of pattern|response entries
+ * Patterns are normalized like user input and compiled into a PhraseMatcher, so the
+ * best entry for a message is found in one pass over the message, regardless of
+ * how many entries the knowledge base holds. Responses can stay as UTF-8 byte ranges
+ * of a (memory-mapped) source buffer and are only decoded when first served
+ *
+ * A message no pattern matches exactly is retried once with its misspelled words
+ * corrected against the words of the patterns (chatbot.spelling.maxDistance, 0 disables)
+ *
+ * Patterns are also embedded in a SemanticIndex, so a message that shares no pattern
+ * can still be answered by the most similar one (chatbot.semantic.dimensions, 0 disables;
+ * chatbot.semantic.minSimilarity)
+ */
+public class KnowledgeBase {
+
+    // Minimum share of the message's words a pattern must cover to be served as the answer;
+    // a pattern matching only part of a message ("tell me about" in "tell me about java")
+    // must not hide the answer for the rest of it
+    private static final double MIN_COVERAGE = 0.9;
+
+    private final PhraseMatcher index = new PhraseMatcher();
+    private final ByteBuffer source;
+
+    // Words of the patterns, for typo-tolerant lookups; null when disabled
+    private final SpellingIndex spelling;
+
+    // Hashed n-gram vectors of the patterns; texts are only kept until build()
+    private final int semanticDimensions;
+    private final double minSimilarity;
+    private String[] patterns;
+    private SemanticIndex semantic;
+
+    // Response of each entry: byte range in the source, or a decoded String
+    private int[] responseOffsets = new int[16];
+    private int[] responseLengths = new int[16];
+    private String[] decoded = new String[16];
+    private int size;
+
+    private boolean built = false;
+
+    /**
+     * Knowledge base whose responses are all given as Strings
+     */
+    public KnowledgeBase() {
+        this(null);
+    }
+
+    /**
+     * Knowledge base whose responses may refer to byte ranges of the given buffer
+     */
+    public KnowledgeBase(ByteBuffer source) {
+        this.source = source;
+        int maxDistance = SpellingIndex.configuredMaxDistance();
+        this.spelling = maxDistance > 0 ? new SpellingIndex(maxDistance) : null;
+        this.semanticDimensions = SemanticIndex.configuredDimensions();
+        this.minSimilarity = SemanticIndex.configuredMinSimilarity();
+        this.patterns = semanticDimensions > 0 ? new String[16] : null;
+    }
+
+    /**
+     * Add an entry; the pattern must already be normalized
+     */
+    public void add(String normalizedPattern, String response) {
+        int entry = addEntry(normalizedPattern, -1, 0);
+        if (entry >= 0) {
+            decoded[entry] = response;
+        }
+    }
+
+    /**
+     * Add an entry whose response is the UTF-8 byte range [offset, offset + length) of the source
+     */
+    public void add(CharSequence normalizedPattern, int offset, int length) {
+        if (source == null) {
+            throw new IllegalStateException("Knowledge base has no source buffer");
+        }
+        addEntry(normalizedPattern, offset, length);
+    }
+
+    private int addEntry(CharSequence normalizedPattern, int offset, int length) {
+        if (built) {
+            throw new IllegalStateException("Cannot add entries after build()");
+        }
+        if (normalizedPattern.length() == 0) return -1;
+
+        if (size == responseOffsets.length) {
+            responseOffsets = Arrays.copyOf(responseOffsets, size * 2);
+            responseLengths = Arrays.copyOf(responseLengths, size * 2);
+            decoded = Arrays.copyOf(decoded, size * 2);
+        }
+        if (patterns != null && size == patterns.length) {
+            patterns = Arrays.copyOf(patterns, size * 2);
+        }
+        int entry = size++;
+        responseOffsets[entry] = offset;
+        responseLengths[entry] = length;
+        index.add(normalizedPattern, entry);
+        if (spelling != null) {
+            spelling.addWords(normalizedPattern);
+        }
+        if (patterns != null) {
+            patterns[entry] = normalizedPattern.toString();
+        }
+        return entry;
+    }
+
+    /**
+     * Compile the index
+     */
+    public KnowledgeBase build() {
+        index.build();
+        if (spelling != null) {
+            spelling.build();
+        }
+        if (patterns != null) {
+            semantic = SemanticIndex.build(patterns, size, semanticDimensions);
+            patterns = null;
+        }
+        responseOffsets = Arrays.copyOf(responseOffsets, size);
+        responseLengths = Arrays.copyOf(responseLengths, size);
+        decoded = Arrays.copyOf(decoded, size);
+        built = true;
+        return this;
+    }
+
+    /**
+     * Response of the longest pattern found in the normalized input, or null when
+     * nothing matches or the match leaves more than a few characters of the input uncovered
+     * Misspelled words are only corrected when the input as typed finds nothing
+     */
+    public String lookup(CharSequence normalizedInput) {
+        String response = lookupExact(normalizedInput);
+        if (response != null || spelling == null) {
+            return response;
+        }
+        String corrected = spelling.correct(normalizedInput);
+        return corrected != null ? lookupExact(corrected) : null;
+    }
+
+    /**
+     * Response of the pattern most similar to the normalized input, or null when the
+     * semantic index is disabled or no pattern reaches the minimum similarity
+     */
+    public String lookupSimilar(CharSequence normalizedInput) {
+        if (semantic == null) return null;
+        float[] query = new float[semantic.getDimensions()];
+        if (!semantic.embed(normalizedInput, query)) return null;
+
+        int[] entries = new int[1];
+        float[] similarities = new float[1];
+        if (semantic.search(query, 1, entries, similarities) == 0 || similarities[0] < minSimilarity) {
+            return null;
+        }
+        return response(entries[0]);
+    }
+
+    private String lookupExact(CharSequence normalizedInput) {
+        int phrase = index.longestMatch(normalizedInput);
+        if (phrase < 0) return null;
+
+        if (index.lengthOf(phrase) < MIN_COVERAGE * wordSpan(normalizedInput)) {
+            return null;
+        }
+        return response(index.valueOf(phrase));
+    }
+
+    /**
+     * Length of the text from its first to its last letter or digit, so trailing "?" or
+     * "!" do not count against a pattern
+     */
+    private static int wordSpan(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && !Character.isLetterOrDigit(text.charAt(start))) start++;
+        while (end > start && !Character.isLetterOrDigit(text.charAt(end - 1))) end--;
+        return end - start;
+    }
+
+    /**
+     * Response of an entry, decoding it from the source on first use
+     * Concurrent first calls may both decode; Strings are immutable, so either result is safe to publish
+     */
+    private String response(int entry) {
+        String response = decoded[entry];
+        if (response == null) {
+            byte[] bytes = new byte[responseLengths[entry]];
+            source.get(responseOffsets[entry], bytes);
+            response = new String(bytes, StandardCharsets.UTF_8);
+            decoded[entry] = response;
+        }
+        return response;
+    }
+
+    /**
+     * Number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Index of the pattern words used to correct misspellings, or null when disabled
+     */
+    public SpellingIndex getSpellingIndex() {
+        return spelling;
+    }
+
+    /**
+     * Vectors of the patterns for similarity search, or null when disabled
+     */
+    public SemanticIndex getSemanticIndex() {
+        return semantic;
+    }
+}
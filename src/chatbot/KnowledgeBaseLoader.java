@@ -0,0 +1,181 @@
+package chatbot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads pattern|response knowledge-base files
+ * The file is memory-mapped and split at line boundaries into chunks that are parsed
+ * in parallel on the common ForkJoinPool. Only the normalized patterns are
+ * materialized; responses stay as byte ranges of the mapping until first served
+ */
+public final class KnowledgeBaseLoader {
+
+    // Chunks smaller than this are parsed by a single task
+    private static final int MIN_CHUNK_BYTES = 256 * 1024;
+
+    private KnowledgeBaseLoader() {
+    }
+
+    /**
+     * Memory-map and parse a knowledge-base file
+     */
+    public static KnowledgeBase load(Path file, NLPProcessor nlpProcessor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Knowledge base larger than 2 GB: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            return parse(mapped, nlpProcessor);
+        }
+    }
+
+    /**
+     * Read and parse a private in-memory copy of a knowledge-base file
+     * Used when the file may be edited while its index is in use, which would change
+     * (or, if truncated, invalidate) the responses of a mapping
+     */
+    public static KnowledgeBase read(Path file, NLPProcessor nlpProcessor) throws IOException {
+        return parse(ByteBuffer.wrap(Files.readAllBytes(file)), nlpProcessor);
+    }
+
+    /**
+     * Parse knowledge-base content held in a buffer
+     */
+    public static KnowledgeBase parse(ByteBuffer data, NLPProcessor nlpProcessor) {
+        List<ParsedChunk> chunks = ForkJoinPool.commonPool()
+                .invoke(new ParseTask(data, nlpProcessor, 0, data.limit()));
+
+        // Merge in file order so later duplicates still override earlier ones
+        KnowledgeBase knowledgeBase = new KnowledgeBase(data);
+        for (ParsedChunk chunk : chunks) {
+            for (int i = 0; i < chunk.count; i++) {
+                knowledgeBase.add(chunk.patterns[i], chunk.offsets[i], chunk.lengths[i]);
+            }
+        }
+        return knowledgeBase.build();
+    }
+
+    /**
+     * Entries parsed from one chunk of the file
+     */
+    private static final class ParsedChunk {
+        String[] patterns = new String[64];
+        int[] offsets = new int[64];
+        int[] lengths = new int[64];
+        int count;
+
+        void add(String pattern, int offset, int length) {
+            if (count == patterns.length) {
+                patterns = Arrays.copyOf(patterns, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            patterns[count] = pattern;
+            offsets[count] = offset;
+            lengths[count] = length;
+            count++;
+        }
+    }
+
+    /**
+     * Splits a byte range at line boundaries until it is small enough to parse directly
+     */
+    private static final class ParseTask extends RecursiveTask<List<ParsedChunk>> {
+        private final ByteBuffer data;
+        private final NLPProcessor nlpProcessor;
+        private final int start;
+        private final int end;
+
+        ParseTask(ByteBuffer data, NLPProcessor nlpProcessor, int start, int end) {
+            this.data = data;
+            this.nlpProcessor = nlpProcessor;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<ParsedChunk> compute() {
+            if (end - start > MIN_CHUNK_BYTES) {
+                int split = nextLineStart(data, start + (end - start) / 2, end);
+                if (split > start && split < end) {
+                    ParseTask left = new ParseTask(data, nlpProcessor, start, split);
+                    ParseTask right = new ParseTask(data, nlpProcessor, split, end);
+                    left.fork();
+                    List<ParsedChunk> rightChunks = right.compute();
+                    List<ParsedChunk> chunks = new ArrayList<>(left.join());
+                    chunks.addAll(rightChunks);
+                    return chunks;
+                }
+            }
+
+            ParsedChunk chunk = new ParsedChunk();
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = nextLineStart(data, lineStart, end);
+                parseLine(chunk, lineStart, lineEnd);
+                lineStart = lineEnd;
+            }
+            return List.of(chunk);
+        }
+
+        /**
+         * Parse one "pattern|response" line; comments and malformed lines are skipped
+         */
+        private void parseLine(ParsedChunk chunk, int lineStart, int lineEnd) {
+            if (lineStart < lineEnd && data.get(lineStart) == '#') return;
+
+            int separator = -1;
+            for (int i = lineStart; i < lineEnd; i++) {
+                if (data.get(i) == '|') {
+                    if (separator >= 0) return;
+                    separator = i;
+                }
+            }
+            if (separator < 0) return;
+
+            int patternStart = skipSpaces(lineStart, separator);
+            int patternEnd = trimSpaces(patternStart, separator);
+            int responseStart = skipSpaces(separator + 1, lineEnd);
+            int responseEnd = trimSpaces(responseStart, lineEnd);
+            if (patternStart == patternEnd || responseStart == responseEnd) return;
+
+            byte[] patternBytes = new byte[patternEnd - patternStart];
+            data.get(patternStart, patternBytes);
+            String pattern = nlpProcessor.preprocess(new String(patternBytes, StandardCharsets.UTF_8));
+            chunk.add(pattern, responseStart, responseEnd - responseStart);
+        }
+
+        private int skipSpaces(int from, int to) {
+            while (from < to && (data.get(from) & 0xFF) <= ' ') from++;
+            return from;
+        }
+
+        private int trimSpaces(int from, int to) {
+            while (to > from && (data.get(to - 1) & 0xFF) <= ' ') to--;
+            return to;
+        }
+    }
+
+    /**
+     * Offset just past the next '\n' at or after position, or end if there is none
+     */
+    private static int nextLineStart(ByteBuffer data, int position, int end) {
+        for (int i = position; i < end; i++) {
+            if (data.get(i) == '\n') return i + 1;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,85 @@
+package chatbot;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads a model's knowledge base when its file changes
+ * A daemon thread waits on a WatchService for the file's directory; a burst of
+ * events (editors often write a file in several steps, or replace it by rename)
+ * is coalesced into one reload once the directory has been quiet for a moment.
+ * Reloads run on this thread, never on the request path
+ */
+public class KnowledgeBaseWatcher implements AutoCloseable {
+
+    // Quiet period after the last change before reloading
+    private static final long SETTLE_MILLIS = 200;
+
+    private final ChatbotModel model;
+    private final Path file;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    KnowledgeBaseWatcher(ChatbotModel model, Path file) throws IOException {
+        this.model = model;
+        this.file = file.toAbsolutePath().normalize();
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "chatbot-kb-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Could not close knowledge base watcher: " + e.getMessage());
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // Wait until the writes settle, collecting further events
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher closed
+        }
+    }
+
+    /**
+     * Consume a key's events; true if any of them concerns the watched file
+     */
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            ChatbotModel.ReloadResult result = model.reloadKnowledgeBase();
+            System.out.println("Reloaded knowledge base " + file + ": " + result);
+        } catch (IOException e) {
+            System.err.println("Could not reload knowledge base: " + e.getMessage());
+        }
+    }
+}
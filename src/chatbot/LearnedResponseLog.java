@@ -0,0 +1,516 @@
+package chatbot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, log-structured tier of the learned-pattern store
+ *
+ * Every learned interaction is appended to the current log file (learned-N.log) and
+ * folded into a small in-memory table of the patterns seen since the last snapshot.
+ * A background thread flushes the log every second and, once the table is large enough,
+ * rotates the log and merges the table with the current snapshot into a new sorted,
+ * memory-mapped snapshot (learned-N.snap). Opening the directory maps the newest
+ * snapshot and replays only the logs written after it, so a restart costs the same
+ * however many patterns the snapshot holds
+ *
+ * Hit scores decay exponentially, so the score of a pattern is the sum of the decayed
+ * scores held by the snapshot and the tables; merges drop patterns whose combined
+ * score fell below LearnedResponseStore.MIN_SCORE
+ */
+public class LearnedResponseLog implements AutoCloseable {
+
+    private static final Pattern FILE_NAME = Pattern.compile("learned-(\\d+)\\.(log|snap)(\\.tmp)?");
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int DEFAULT_MERGE_THRESHOLD = 50_000;
+
+    // Log bytes that also trigger a merge, so repeated patterns cannot grow the log without bound
+    private static final long MERGE_LOG_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Patterns learned since the snapshot: latest response and the score accumulated since then
+     */
+    private static final class Pending {
+        private final String response;
+        private final double score;
+        private final long updatedMillis;
+
+        private Pending(String response, double score, long updatedMillis) {
+            this.response = response;
+            this.score = score;
+            this.updatedMillis = updatedMillis;
+        }
+    }
+
+    private final Path directory;
+    private final double halfLifeMillis;
+    private final int mergeThreshold;
+
+    // Read path: newest table first, then the table being merged, then the snapshot
+    private volatile Map<String, Pending> table = new ConcurrentHashMap<>();
+    private volatile Map<String, Pending> merging = Collections.emptyMap();
+    private volatile LearnedSnapshot snapshot = LearnedSnapshot.EMPTY;
+
+    // Append path; guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private FileChannel log;
+    private long generation;
+    private volatile long logBytes;
+
+    // Merges run one at a time, on the background thread or in merge()
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    private final ScheduledExecutorService background;
+
+    private LearnedResponseLog(Path directory, double halfLifeMillis, int mergeThreshold) {
+        this.directory = directory;
+        this.halfLifeMillis = halfLifeMillis;
+        this.mergeThreshold = mergeThreshold;
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chatbot-learned-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open (or create) the store in a directory: map the newest snapshot and replay later logs
+     */
+    public static LearnedResponseLog open(Path directory, long halfLifeMillis) throws IOException {
+        return open(directory, halfLifeMillis, Integer.getInteger("chatbot.learned.mergeThreshold",
+                DEFAULT_MERGE_THRESHOLD));
+    }
+
+    static LearnedResponseLog open(Path directory, long halfLifeMillis, int mergeThreshold) throws IOException {
+        Files.createDirectories(directory);
+        LearnedResponseLog store = new LearnedResponseLog(directory, halfLifeMillis, mergeThreshold);
+        store.recover();
+        store.background.scheduleWithFixedDelay(store::maintain, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        return store;
+    }
+
+    /**
+     * Append one learned interaction; the log write is buffered and flushed in the background
+     */
+    public void append(String key, String response, long now) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
+        int payloadBytes = Long.BYTES + 2 * Integer.BYTES + keyBytes.length + responseBytes.length;
+
+        appendLock.lock();
+        try {
+            if (log == null) return;
+            ByteBuffer record = buffer;
+            if (buffer.remaining() < RECORD_HEADER_BYTES + payloadBytes) {
+                flushLocked();
+                if (buffer.remaining() < RECORD_HEADER_BYTES + payloadBytes) {
+                    record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadBytes);
+                }
+            }
+            int start = record.position();
+            record.position(start + RECORD_HEADER_BYTES);
+            record.putLong(now).putInt(keyBytes.length).put(keyBytes).putInt(responseBytes.length).put(responseBytes);
+            crc.reset();
+            crc.update(record.array(), start + RECORD_HEADER_BYTES, payloadBytes);
+            record.putInt(start, payloadBytes).putInt(start + Integer.BYTES, (int) crc.getValue());
+            if (record != buffer) {
+                record.flip();
+                writeLocked(record);
+            }
+
+            apply(table, key, response, now);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Latest response learned for a pattern key, or null
+     */
+    public String lookup(String key) {
+        Pending pending = table.get(key);
+        if (pending == null) pending = merging.get(key);
+        if (pending != null) return pending.response;
+
+        LearnedSnapshot.Record record = snapshot.find(key.getBytes(StandardCharsets.UTF_8));
+        return record != null ? record.response : null;
+    }
+
+    /**
+     * Hit score of a pattern at the given time, combining the snapshot and pending tables
+     */
+    public double score(String key, long now) {
+        double score = 0;
+        Pending pending = table.get(key);
+        if (pending != null) score += decay(pending.score, pending.updatedMillis, now);
+        pending = merging.get(key);
+        if (pending != null) score += decay(pending.score, pending.updatedMillis, now);
+        LearnedSnapshot.Record record = snapshot.find(key.getBytes(StandardCharsets.UTF_8));
+        if (record != null) score += decay(record.score, record.updatedMillis, now);
+        return score;
+    }
+
+    /**
+     * Patterns in the snapshot plus those learned since (a pattern in both counts twice)
+     */
+    public long size() {
+        return (long) snapshot.size() + merging.size() + table.size();
+    }
+
+    /**
+     * Number of patterns in the current snapshot
+     */
+    public int getSnapshotSize() {
+        return snapshot.size();
+    }
+
+    /**
+     * Rotate the log and merge everything learned so far into a new snapshot
+     * Throws IllegalStateException once the log is closed
+     */
+    public void merge() throws IOException {
+        mergeLock.lock();
+        try {
+            mergeLocked();
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the background thread, then flush and sync the log
+     */
+    @Override
+    public void close() {
+        background.shutdown();
+        try {
+            background.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            if (log == null) return;
+            flushLocked();
+            log.force(false);
+            log.close();
+            log = null;
+        } catch (IOException e) {
+            System.err.println("Could not close learned-pattern log: " + e.getMessage());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Background tick: flush the log, and merge once enough patterns are pending
+     */
+    private void maintain() {
+        appendLock.lock();
+        try {
+            if (log == null) return;
+            flushLocked();
+        } finally {
+            appendLock.unlock();
+        }
+
+        if ((table.size() >= mergeThreshold || logBytes >= MERGE_LOG_BYTES) && mergeLock.tryLock()) {
+            try {
+                mergeLocked();
+            } catch (IOException e) {
+                System.err.println("Could not merge learned patterns: " + e.getMessage());
+            } finally {
+                mergeLock.unlock();
+            }
+        }
+    }
+
+    private void mergeLocked() throws IOException {
+        long now = System.currentTimeMillis();
+        long snapshotGeneration;
+
+        // Rotate: appends continue in a new log and a new table while the frozen ones are merged
+        appendLock.lock();
+        try {
+            if (log == null) {
+                throw new IllegalStateException("Learned-pattern log is closed");
+            }
+            flushLocked();
+            log.force(false);
+            log.close();
+            snapshotGeneration = ++generation;
+            log = openLog(snapshotGeneration);
+            logBytes = 0;
+            merging = table;
+            table = new ConcurrentHashMap<>();
+        } finally {
+            appendLock.unlock();
+        }
+
+        LearnedSnapshot previous = snapshot;
+        Path target = directory.resolve(fileName(snapshotGeneration, "snap"));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        long start = System.nanoTime();
+        int count;
+        try {
+            count = LearnedSnapshot.write(temporary, mergedRecords(previous, merging, now));
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Publish the snapshot before dropping the frozen table, so lookups never miss a pattern
+            snapshot = LearnedSnapshot.open(target);
+        } catch (IOException | RuntimeException e) {
+            // Keep the frozen patterns readable; their logs stay on disk until a later merge succeeds
+            appendLock.lock();
+            try {
+                merging.forEach((key, pending) -> table.merge(key, pending, this::combine));
+                merging = Collections.emptyMap();
+            } finally {
+                appendLock.unlock();
+            }
+            throw e;
+        }
+        merging = Collections.emptyMap();
+        deleteOlderThan(snapshotGeneration);
+        System.err.println("Merged learned patterns into " + target.getFileName() + ": " + count + " patterns in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Records of the previous snapshot merged with the frozen table, in key order, without decayed patterns
+     */
+    private Iterator<LearnedSnapshot.Record> mergedRecords(LearnedSnapshot previous, Map<String, Pending> pending,
+                                                           long now) {
+        byte[][] keys = new byte[pending.size()][];
+        Pending[] values = new Pending[keys.length];
+        int n = 0;
+        TreeMap<byte[], Pending> sorted = new TreeMap<>(Arrays::compareUnsigned);
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            sorted.put(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue());
+        }
+        for (Map.Entry<byte[], Pending> entry : sorted.entrySet()) {
+            keys[n] = entry.getKey();
+            values[n++] = entry.getValue();
+        }
+        int pendingCount = n;
+
+        return new Iterator<>() {
+            private int snapshotPosition = 0;
+            private int pendingPosition = 0;
+            private LearnedSnapshot.Record nextSnapshot = advanceSnapshot();
+            private LearnedSnapshot.Record next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public LearnedSnapshot.Record next() {
+                if (next == null) throw new NoSuchElementException();
+                LearnedSnapshot.Record result = next;
+                next = advance();
+                return result;
+            }
+
+            private LearnedSnapshot.Record advanceSnapshot() {
+                return snapshotPosition < previous.size() ? previous.get(snapshotPosition++) : null;
+            }
+
+            private LearnedSnapshot.Record advance() {
+                while (nextSnapshot != null || pendingPosition < pendingCount) {
+                    int cmp = nextSnapshot == null ? 1
+                            : pendingPosition == pendingCount ? -1
+                            : Arrays.compareUnsigned(nextSnapshot.key, keys[pendingPosition]);
+                    LearnedSnapshot.Record merged;
+                    if (cmp < 0) {
+                        merged = decayed(nextSnapshot.key, nextSnapshot.response,
+                                decay(nextSnapshot.score, nextSnapshot.updatedMillis, now), now);
+                        nextSnapshot = advanceSnapshot();
+                    } else {
+                        Pending update = values[pendingPosition];
+                        double score = decay(update.score, update.updatedMillis, now);
+                        if (cmp == 0) {
+                            score += decay(nextSnapshot.score, nextSnapshot.updatedMillis, now);
+                            nextSnapshot = advanceSnapshot();
+                        }
+                        merged = decayed(keys[pendingPosition++], update.response, score, now);
+                    }
+                    if (merged != null) return merged;
+                }
+                return null;
+            }
+        };
+    }
+
+    private static LearnedSnapshot.Record decayed(byte[] key, String response, double score, long now) {
+        return score < LearnedResponseStore.MIN_SCORE ? null : new LearnedSnapshot.Record(key, response, score, now);
+    }
+
+    /**
+     * Map the newest snapshot, replay later logs into the table and continue the newest log
+     */
+    private void recover() throws IOException {
+        long snapshotGeneration = -1;
+        List<Long> logs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "learned-*")) {
+            for (Path file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (!matcher.matches() || matcher.group(3) != null) continue;
+                long fileGeneration = Long.parseLong(matcher.group(1));
+                if (matcher.group(2).equals("snap")) {
+                    snapshotGeneration = Math.max(snapshotGeneration, fileGeneration);
+                } else {
+                    logs.add(fileGeneration);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        if (snapshotGeneration >= 0) {
+            snapshot = LearnedSnapshot.open(directory.resolve(fileName(snapshotGeneration, "snap")));
+        }
+        // The snapshot of generation N holds every log before N
+        Collections.sort(logs);
+        generation = Math.max(snapshotGeneration, 0);
+        int replayed = 0;
+        for (long logGeneration : logs) {
+            if (logGeneration < snapshotGeneration) continue;
+            replayed += replay(directory.resolve(fileName(logGeneration, "log")));
+            generation = Math.max(generation, logGeneration);
+        }
+        log = openLog(generation);
+        deleteOlderThan(Math.max(snapshotGeneration, 0));
+        if (snapshot.size() > 0 || replayed > 0) {
+            System.out.println("Recovered " + snapshot.size() + " learned patterns and " + replayed
+                    + " logged updates in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Fold a log file into the table, truncating a torn or corrupt tail; returns the records read
+     */
+    private int replay(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Learned-pattern log larger than 2 GB: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C checksum = new CRC32C();
+            int position = 0;
+            int records = 0;
+            while (size - position >= RECORD_HEADER_BYTES) {
+                int length = data.getInt(position);
+                int expected = data.getInt(position + Integer.BYTES);
+                int payload = position + RECORD_HEADER_BYTES;
+                if (length < Long.BYTES + 2 * Integer.BYTES || length > size - payload) break;
+                checksum.reset();
+                checksum.update(data.slice(payload, length));
+                if ((int) checksum.getValue() != expected) break;
+
+                long timestamp = data.getLong(payload);
+                int keyLength = data.getInt(payload + Long.BYTES);
+                int keyStart = payload + Long.BYTES + Integer.BYTES;
+                if (keyLength < 0 || keyLength > length - Long.BYTES - 2 * Integer.BYTES) break;
+                byte[] key = new byte[keyLength];
+                data.get(keyStart, key);
+                byte[] response = new byte[data.getInt(keyStart + keyLength)];
+                data.get(keyStart + keyLength + Integer.BYTES, response);
+                apply(table, new String(key, StandardCharsets.UTF_8), new String(response, StandardCharsets.UTF_8),
+                        timestamp);
+                position = payload + length;
+                records++;
+            }
+            if (position < size) {
+                System.err.println("Learned-pattern log " + file + ": discarding " + (size - position)
+                        + " bytes after the last intact record");
+                channel.truncate(position);
+            }
+            return records;
+        }
+    }
+
+    private void apply(Map<String, Pending> target, String key, String response, long now) {
+        Pending previous = target.get(key);
+        double score = previous == null ? 1 : decay(previous.score, previous.updatedMillis, now) + 1;
+        target.put(key, new Pending(response, score, now));
+    }
+
+    /**
+     * Two partial scores of one pattern as one: decayed sum, newest response
+     */
+    private Pending combine(Pending older, Pending newer) {
+        if (older.updatedMillis > newer.updatedMillis) {
+            Pending swap = older;
+            older = newer;
+            newer = swap;
+        }
+        return new Pending(newer.response,
+                newer.score + decay(older.score, older.updatedMillis, newer.updatedMillis), newer.updatedMillis);
+    }
+
+    private double decay(double score, long updatedMillis, long now) {
+        return score * Math.pow(0.5, Math.max(0, now - updatedMillis) / halfLifeMillis);
+    }
+
+    private FileChannel openLog(long logGeneration) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(fileName(logGeneration, "log")),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private void flushLocked() {
+        if (buffer.position() == 0) return;
+        buffer.flip();
+        writeLocked(buffer);
+        buffer.clear();
+    }
+
+    private void writeLocked(ByteBuffer data) {
+        try {
+            while (data.hasRemaining()) {
+                logBytes += log.write(data);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write learned-pattern log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove snapshots, logs and unfinished snapshots that a snapshot of the given generation supersedes
+     */
+    private void deleteOlderThan(long snapshotGeneration) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "learned-*")) {
+            for (Path file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) < snapshotGeneration) {
+                    // A mapped snapshot stays readable after its file is deleted
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not delete old learned-pattern files: " + e.getMessage());
+        }
+    }
+
+    private static String fileName(long fileGeneration, String extension) {
+        return String.format("learned-%08d.%s", fileGeneration, extension);
+    }
+}
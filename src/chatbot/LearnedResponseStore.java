@@ -0,0 +1,349 @@
+package chatbot;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded store of learned patterns: the leading n-gram of a message and the response it got
+ * Every pattern carries a hit score that grows when the pattern recurs and halves every
+ * half-life while it does not. The store has a hard cap on entries and estimated bytes;
+ * reaching it evicts the lowest-scoring patterns down to a low-water mark, and a periodic
+ * compaction drops patterns whose score has decayed to almost nothing. Memory therefore
+ * stays flat however many distinct messages pass through, while recurring patterns stay
+ *
+ * With a LearnedResponseLog attached, every learned interaction is also persisted, and
+ * patterns evicted from (or never loaded into) memory are still found in the log's
+ * memory-mapped snapshot
+ */
+public class LearnedResponseStore implements AutoCloseable {
+
+    // Words per pattern key
+    static final int NGRAM_SIZE = 3;
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    private static final long DEFAULT_HALF_LIFE_MILLIS = 60L * 60 * 1000;
+
+    // Eviction frees space down to this share of the caps, so it runs once per many inserts
+    private static final double LOW_WATER_MARK = 0.75;
+
+    // Compaction drops patterns whose decayed score fell below this (about five half-lives for one hit)
+    static final double MIN_SCORE = 1.0 / 32;
+    private static final long COMPACTION_INTERVAL_MILLIS = 60_000;
+
+    // Estimated bytes per entry besides the key and response characters
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    /**
+     * One learned pattern; mutable fields are guarded by the entry's monitor
+     */
+    private static final class Entry {
+        private final String key;
+        private String response;
+        private double score;
+        private long updatedMillis;
+        private int weight;
+        private boolean removed;
+
+        private Entry(String key) {
+            this.key = key;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long maxBytes;
+    private final double halfLifeMillis;
+
+    // Durable tier, or null when patterns are only kept in memory
+    private final LearnedResponseLog log;
+
+    private final AtomicLong weight = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private volatile long lastCompactionMillis = System.currentTimeMillis();
+
+    private final LongAdder learned = new LongAdder();
+    private final LongAdder recurrences = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    public LearnedResponseStore(int maxEntries, long maxBytes, long halfLifeMillis) {
+        this(maxEntries, maxBytes, halfLifeMillis, null);
+    }
+
+    /**
+     * Store that also persists every learned interaction to the given log
+     */
+    public LearnedResponseStore(int maxEntries, long maxBytes, long halfLifeMillis, LearnedResponseLog log) {
+        if (maxEntries <= 0 || maxBytes <= 0 || halfLifeMillis <= 0) {
+            throw new IllegalArgumentException("Learned store limits must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.halfLifeMillis = halfLifeMillis;
+        this.log = log;
+    }
+
+    /**
+     * Store configured by system properties chatbot.learned.maxEntries, chatbot.learned.maxBytes
+     * and chatbot.learned.halfLifeMillis; patterns are persisted to chatbot.learned.dir when set
+     */
+    public static LearnedResponseStore fromSystemProperties() {
+        long halfLifeMillis = Long.getLong("chatbot.learned.halfLifeMillis", DEFAULT_HALF_LIFE_MILLIS);
+        LearnedResponseLog log = null;
+        String directory = System.getProperty("chatbot.learned.dir");
+        if (directory != null) {
+            try {
+                log = LearnedResponseLog.open(Paths.get(directory), halfLifeMillis);
+            } catch (IOException e) {
+                System.err.println("Could not open learned patterns in " + directory + ": " + e.getMessage());
+            }
+        }
+        return new LearnedResponseStore(
+                Integer.getInteger("chatbot.learned.maxEntries", DEFAULT_MAX_ENTRIES),
+                Long.getLong("chatbot.learned.maxBytes", DEFAULT_MAX_BYTES),
+                halfLifeMillis, log);
+    }
+
+    /**
+     * Pattern key of an input (its first NGRAM_SIZE tokens), or null if it is shorter
+     */
+    public static String keyOf(AnalyzedInput input) {
+        if (input.getTokenCount() < NGRAM_SIZE) return null;
+        StringBuilder key = new StringBuilder(32);
+        for (int i = 0; i < NGRAM_SIZE; i++) {
+            if (i > 0) key.append(' ');
+            key.append(input.getToken(i));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Record that an input got a response: a new pattern starts with one hit, a known
+     * one gains a hit on top of its decayed score and remembers the latest response
+     */
+    public void learn(AnalyzedInput input, String response) {
+        String key = keyOf(input);
+        if (key != null) {
+            learn(key, response, System.currentTimeMillis());
+        }
+    }
+
+    void learn(String key, String response, long now) {
+        learned.increment();
+        while (true) {
+            Entry entry = entries.computeIfAbsent(key, Entry::new);
+            synchronized (entry) {
+                // Evicted between lookup and update: start over with a fresh entry
+                if (entry.removed) continue;
+                if (entry.updatedMillis != 0) {
+                    recurrences.increment();
+                }
+                entry.score = decayed(entry, now) + 1;
+                entry.updatedMillis = now;
+                entry.response = response;
+                int newWeight = weigh(key, response);
+                weight.addAndGet(newWeight - entry.weight);
+                entry.weight = newWeight;
+                break;
+            }
+        }
+        if (log != null) {
+            log.append(key, response, now);
+        }
+
+        if (entries.size() > maxEntries || weight.get() > maxBytes) {
+            // Hard cap: the inserting thread waits for the eviction it triggered
+            evictionLock.lock();
+            try {
+                if (entries.size() > maxEntries || weight.get() > maxBytes) {
+                    evict(now);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        } else if (now - lastCompactionMillis >= COMPACTION_INTERVAL_MILLIS && evictionLock.tryLock()) {
+            try {
+                compact(now);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Latest response learned for the input's pattern, or null
+     */
+    public String lookup(AnalyzedInput input) {
+        String key = keyOf(input);
+        if (key == null) return null;
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return log != null ? log.lookup(key) : null;
+        }
+        synchronized (entry) {
+            return entry.response;
+        }
+    }
+
+    /**
+     * Current (decayed) hit score of a pattern, or 0 if it is not stored
+     * With a log this is the persisted score, which eviction from memory does not reset
+     */
+    public double score(String key) {
+        if (log != null) {
+            return log.score(key, System.currentTimeMillis());
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) return 0;
+        synchronized (entry) {
+            return decayed(entry, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Drop patterns whose score has decayed below the minimum
+     */
+    public void compact() {
+        evictionLock.lock();
+        try {
+            compact(System.currentTimeMillis());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Patterns held in memory
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Durable tier, or null when patterns are only kept in memory
+     */
+    public LearnedResponseLog getLog() {
+        return log;
+    }
+
+    /**
+     * Estimated bytes held by the stored patterns and responses
+     */
+    public long weightedSize() {
+        return weight.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getCompactionCount() {
+        return compactions.sum();
+    }
+
+    /**
+     * Share of learned interactions whose pattern was already stored
+     */
+    public double getRecurrenceRate() {
+        long total = learned.sum();
+        return total == 0 ? 0.0 : recurrences.sum() / (double) total;
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (Entry entry : entries.values()) {
+                remove(entry);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Flush and close the durable tier, if any
+     */
+    @Override
+    public void close() {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LearnedResponseStore{size=%d, bytes=%d, recurrence=%.1f%%, evictions=%d, compactions=%d}",
+                size(), weightedSize(), getRecurrenceRate() * 100, getEvictionCount(), getCompactionCount());
+    }
+
+    /**
+     * Evict the lowest-scoring patterns until both caps are back under the low-water mark
+     * Caller holds the eviction lock
+     */
+    private void evict(long now) {
+        // Sort (score, position) pairs packed into longs: non-negative float bits order like the floats
+        Entry[] snapshot = entries.values().toArray(new Entry[0]);
+        long[] order = new long[snapshot.length];
+        for (int i = 0; i < snapshot.length; i++) {
+            float score;
+            synchronized (snapshot[i]) {
+                score = (float) decayed(snapshot[i], now);
+            }
+            order[i] = (long) Float.floatToIntBits(score) << 32 | i;
+        }
+        Arrays.sort(order);
+
+        long targetEntries = (long) (maxEntries * LOW_WATER_MARK);
+        long targetBytes = (long) (maxBytes * LOW_WATER_MARK);
+        for (long packed : order) {
+            float score = Float.intBitsToFloat((int) (packed >>> 32));
+            if (entries.size() <= targetEntries && weight.get() <= targetBytes && score >= MIN_SCORE) break;
+            remove(snapshot[(int) packed]);
+            evictions.increment();
+        }
+        lastCompactionMillis = now;
+    }
+
+    /**
+     * Drop decayed patterns; caller holds the eviction lock
+     */
+    private void compact(long now) {
+        for (Entry entry : entries.values()) {
+            double score;
+            synchronized (entry) {
+                score = decayed(entry, now);
+            }
+            if (score < MIN_SCORE) {
+                remove(entry);
+                evictions.increment();
+            }
+        }
+        compactions.increment();
+        lastCompactionMillis = now;
+    }
+
+    private void remove(Entry entry) {
+        synchronized (entry) {
+            if (!entry.removed && entries.remove(entry.key, entry)) {
+                entry.removed = true;
+                weight.addAndGet(-entry.weight);
+            }
+        }
+    }
+
+    private double decayed(Entry entry, long now) {
+        if (entry.updatedMillis == 0) return 0;
+        long age = Math.max(0, now - entry.updatedMillis);
+        return entry.score * Math.pow(0.5, age / halfLifeMillis);
+    }
+
+    private static int weigh(String key, String response) {
+        return ENTRY_OVERHEAD_BYTES + 2 * (key.length() + response.length());
+    }
+}
@@ -0,0 +1,196 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Immutable, memory-mapped file of learned patterns sorted by key
+ *
+ * Layout: header (magic, entry count, index offset, creation time), records
+ * (key length, UTF-8 key, response length, UTF-8 response, score, score time) and an
+ * index of record offsets in unsigned UTF-8 key order. Lookups binary-search the index
+ * in the mapping, so nothing is loaded onto the heap until a response is served
+ */
+final class LearnedSnapshot {
+
+    // "CBL1"
+    private static final int MAGIC = 0x43424C31;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    /**
+     * One pattern as stored: latest response, hit score and the time the score was computed
+     */
+    static final class Record {
+        final byte[] key;
+        final String response;
+        final double score;
+        final long updatedMillis;
+
+        Record(byte[] key, String response, double score, long updatedMillis) {
+            this.key = key;
+            this.response = response;
+            this.score = score;
+            this.updatedMillis = updatedMillis;
+        }
+    }
+
+    static final LearnedSnapshot EMPTY = new LearnedSnapshot(null, ByteBuffer.allocate(0), 0, 0);
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final int count;
+    private final int indexOffset;
+
+    private LearnedSnapshot(Path file, ByteBuffer data, int count, int indexOffset) {
+        this.file = file;
+        this.data = data;
+        this.count = count;
+        this.indexOffset = indexOffset;
+    }
+
+    /**
+     * Map a snapshot file written by write()
+     */
+    static LearnedSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Learned snapshot larger than 2 GB: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_BYTES || data.getInt(0) != MAGIC) {
+                throw new IOException("Not a learned snapshot: " + file);
+            }
+            int count = data.getInt(Integer.BYTES);
+            long indexOffset = data.getLong(2 * Integer.BYTES);
+            if (count < 0 || indexOffset < HEADER_BYTES || indexOffset + (long) count * Long.BYTES != size) {
+                throw new IOException("Corrupt learned snapshot: " + file);
+            }
+            return new LearnedSnapshot(file, data, count, (int) indexOffset);
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Record stored for a key (UTF-8 bytes), or null
+     */
+    Record find(byte[] key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = recordOffset(mid);
+            int cmp = compareKey(offset, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return read(offset);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record at a position of the key order
+     */
+    Record get(int position) {
+        return read(recordOffset(position));
+    }
+
+    /**
+     * Write a snapshot of the given records, which must come sorted by unsigned key bytes
+     * Records are streamed to the file; only their offsets are kept in memory. The file is
+     * forced to storage before this returns
+     */
+    static int write(Path file, Iterator<Record> records) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            long[] offsets = new long[1024];
+            int count = 0;
+            long position = HEADER_BYTES;
+            out.write(new byte[HEADER_BYTES]);
+            while (records.hasNext()) {
+                Record record = records.next();
+                byte[] response = record.response.getBytes(StandardCharsets.UTF_8);
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = position;
+                out.writeInt(record.key.length);
+                out.write(record.key);
+                out.writeInt(response.length);
+                out.write(response);
+                out.writeDouble(record.score);
+                out.writeLong(record.updatedMillis);
+                position += 2 * Integer.BYTES + record.key.length + response.length + Double.BYTES + Long.BYTES;
+            }
+            long indexOffset = position;
+            for (int i = 0; i < count; i++) {
+                out.writeLong(offsets[i]);
+            }
+            out.flush();
+            if (indexOffset + (long) count * Long.BYTES > Integer.MAX_VALUE) {
+                throw new IOException("Learned snapshot larger than 2 GB: " + file);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).putInt(count).putLong(indexOffset).putLong(System.currentTimeMillis());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            return count;
+        }
+    }
+
+    private int recordOffset(int position) {
+        return (int) data.getLong(indexOffset + position * Long.BYTES);
+    }
+
+    /**
+     * Compare the key of the record at offset with the given key, as unsigned bytes
+     */
+    private int compareKey(int offset, byte[] key) {
+        int length = data.getInt(offset);
+        int start = offset + Integer.BYTES;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(data.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private Record read(int offset) {
+        int keyLength = data.getInt(offset);
+        byte[] key = new byte[keyLength];
+        data.get(offset + Integer.BYTES, key);
+        int responseOffset = offset + Integer.BYTES + keyLength;
+        int responseLength = data.getInt(responseOffset);
+        byte[] response = new byte[responseLength];
+        data.get(responseOffset + Integer.BYTES, response);
+        int tail = responseOffset + Integer.BYTES + responseLength;
+        return new Record(key, new String(response, StandardCharsets.UTF_8), data.getDouble(tail),
+                data.getLong(tail + Double.BYTES));
+    }
+}
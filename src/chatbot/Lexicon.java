@@ -0,0 +1,103 @@
+package chatbot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Weighted word list stored as a bitset over token dictionary ids
+ * Membership and weight lookups are single array accesses, independent of the lexicon size
+ */
+public final class Lexicon {
+
+    private final long[] bits;
+    private final float[] weights;
+    private final int size;
+
+    /**
+     * Build a lexicon from words that have already been interned in the dictionary
+     */
+    public Lexicon(TokenDictionary dictionary, Map<String, Float> entries) {
+        this.bits = new long[(dictionary.size() + 63) >>> 6];
+        this.weights = new float[dictionary.size()];
+        int count = 0;
+        for (Map.Entry<String, Float> entry : entries.entrySet()) {
+            int id = dictionary.lookup(entry.getKey());
+            if (id == TokenDictionary.UNKNOWN_ID) {
+                throw new IllegalArgumentException("Word not in dictionary: " + entry.getKey());
+            }
+            if (!contains(id)) {
+                bits[id >>> 6] |= 1L << id;
+                count++;
+            }
+            weights[id] = entry.getValue();
+        }
+        this.size = count;
+    }
+
+    /**
+     * Check whether a token id belongs to the lexicon
+     */
+    public boolean contains(int id) {
+        return id >= 0 && (id >>> 6) < bits.length && (bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Weight of a token id, or 0 if it is not in the lexicon
+     */
+    public float weight(int id) {
+        return contains(id) ? weights[id] : 0f;
+    }
+
+    /**
+     * Number of words in the lexicon
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Read a word list resource: one word per line, optionally followed by a weight
+     * (default 1.0); '#' starts a comment. Falls back to the given defaults, which use
+     * the same "word [weight]" syntax, when the resource is not on the classpath
+     */
+    public static Map<String, Float> readEntries(String resourceName, String... defaults) {
+        InputStream is = Lexicon.class.getClassLoader().getResourceAsStream(resourceName);
+        if (is == null) {
+            return parseEntries(Arrays.asList(defaults));
+        }
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load lexicon " + resourceName + ": " + e.getMessage());
+            return parseEntries(Arrays.asList(defaults));
+        }
+        return parseEntries(lines);
+    }
+
+    private static Map<String, Float> parseEntries(List<String> lines) {
+        Map<String, Float> entries = new LinkedHashMap<>();
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split("\\s+");
+            float weight = 1.0f;
+            if (parts.length > 1) {
+                try {
+                    weight = Float.parseFloat(parts[parts.length - 1]);
+                    line = line.substring(0, line.lastIndexOf(parts[parts.length - 1])).trim();
+                } catch (NumberFormatException e) {
+                    // Multi-word entry without a weight
+                }
+            }
+            entries.put(line.toLowerCase(), weight);
+        }
+        return entries;
+    }
+}
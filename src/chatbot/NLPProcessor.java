@@ -1,7 +1,8 @@
 package chatbot;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Pattern;
 import chatbot.ChatbotEngine.Intent;
 
 /**
@@ -10,53 +11,146 @@ import chatbot.ChatbotEngine.Intent;
  */
 public class NLPProcessor {
 
-    // Stop words to filter out
-    private static final Set<String> STOP_WORDS = Set.of(
+    // Default stop words, used when lexicons/stop_words.txt is not on the classpath
+    private static final String[] DEFAULT_STOP_WORDS = {
             "a", "an", "and", "are", "as", "at", "be", "by", "for", "from",
             "has", "he", "in", "is", "it", "its", "of", "on", "that", "the",
             "to", "was", "will", "with", "would", "could", "should", "can"
-    );
+    };
+
+    // Default sentiment words, used when the lexicon files are not on the classpath
+    private static final String[] DEFAULT_POSITIVE_WORDS = {
+            "good", "great", "excellent", "amazing", "wonderful", "fantastic", "awesome", "perfect",
+            "happy", "glad", "pleased", "satisfied", "love", "like", "enjoy", "appreciate",
+            "beautiful", "nice", "cool", "fun", "exciting", "interesting", "helpful", "useful",
+            "thank", "thanks", "brilliant", "outstanding", "superb", "marvelous", "delighted",
+            "positive", "optimistic", "confident", "successful", "win", "victory", "achieve"
+    };
+
+    private static final String[] DEFAULT_NEGATIVE_WORDS = {
+            "bad", "terrible", "awful", "horrible", "disgusting", "hate", "dislike", "annoying",
+            "sad", "angry", "mad", "upset", "disappointed", "frustrated", "worried", "concerned",
+            "problem", "issue", "trouble", "difficult", "hard", "impossible", "wrong", "error",
+            "fail", "failure", "lose", "lost", "broken", "damaged", "hurt", "pain", "suffer",
+            "negative", "pessimistic", "depressed", "anxious", "fear", "scared", "boring", "dull"
+    };
+
+    // Default negation words; a negation flips the polarity of the next few sentiment words
+    private static final String[] DEFAULT_NEGATORS = {
+            "not", "no", "never", "dont", "doesnt", "didnt", "isnt", "wasnt", "arent", "werent",
+            "cant", "cannot", "wont", "wouldnt", "shouldnt", "couldnt", "nothing", "hardly", "neither", "nor"
+    };
+
+    // Default intensifiers with the factor applied to the next sentiment word
+    private static final String[] DEFAULT_INTENSIFIERS = {
+            "very 1.5", "really 1.5", "so 1.3", "extremely 2.0", "super 1.5", "totally 1.5",
+            "absolutely 1.8", "incredibly 1.8", "quite 1.2", "too 1.3", "slightly 0.5", "somewhat 0.7"
+    };
+
+    // Number of tokens after a negation word whose polarity is flipped
+    private static final int NEGATION_WINDOW = 3;
+
+    private static final Intent[] INTENTS = Intent.values();
+
+    // Per-thread scratch space for normalization, reused across messages
+    private static final ThreadLocal<TokenBuffer> SCRATCH = ThreadLocal.withInitial(TokenBuffer::new);
+    private static final ThreadLocal<float[]> INTENT_SCORES =
+            ThreadLocal.withInitial(() -> new float[INTENTS.length]);
+
+    // Blend mode: likelihood ratio given to intents whose phrases matched
+    private static final double RULE_BOOST = 8.0;
+    private static final double DEFAULT_MIN_CONFIDENCE = 0.5;
 
-    // Intent patterns
-    private Map<Intent, List<Pattern>> intentPatterns;
+    /**
+     * How the optional statistical classifier combines with the phrase rules
+     */
+    public enum ClassifierMode {
+        // Rules decide; the classifier only labels messages no phrase matched
+        FALLBACK,
+        // Classifier posteriors, boosted for intents whose phrases matched, decide
+        BLEND
+    }
+
+    // Intent precedence when several intents match the same input (most specific first)
+    private static final Intent[] INTENT_PRECEDENCE = {
+            Intent.GREETING, Intent.FAREWELL, Intent.HELP, Intent.PERSONAL,
+            Intent.TIME, Intent.TECHNOLOGY, Intent.EDUCATION, Intent.QUESTION
+    };
+
+    // Intent phrases and the automaton compiled from them
+    private Map<Intent, List<String>> intentPhrases;
+    private PhraseMatcher intentMatcher;
+
+    // Words of the intent phrases, for matching misspelled keywords; null when disabled
+    private SpellingIndex intentSpelling;
+
+    // Vocabulary shared by the lexicons and intent keywords
+    private TokenDictionary dictionary;
 
-    // Sentiment words
-    private Set<String> positiveWords;
-    private Set<String> negativeWords;
+    // Stop words and sentiment words, as bitsets over dictionary ids
+    private Lexicon stopWords;
+    private Lexicon positiveWords;
+    private Lexicon negativeWords;
+
+    // Negation and intensifier words that modify the sentiment words after them
+    private Lexicon negators;
+    private Lexicon intensifiers;
+
+    // Optional Naive Bayes classifier (chatbot.intentModel), its mode and confidence threshold
+    private volatile IntentClassifier classifier;
+    private volatile ClassifierMode classifierMode = ClassifierMode.FALLBACK;
+    private volatile double minConfidence = DEFAULT_MIN_CONFIDENCE;
 
     public NLPProcessor() {
         initializeIntentPatterns();
         initializeSentimentWords();
+        initializeClassifier();
     }
 
     /**
-     * Preprocess text: lowercase, remove punctuation, tokenize
+     * Preprocess text: lowercase, remove punctuation, collapse whitespace
      */
     public String preprocess(String text) {
         if (text == null) return "";
 
-        // Convert to lowercase
-        text = text.toLowerCase();
+        TokenBuffer buffer = SCRATCH.get();
+        TextNormalizer.normalize(text, buffer, dictionary);
+        return buffer.toString(text);
+    }
+
+    /**
+     * Run the full analysis pipeline once: normalize, tokenize, match intents, score sentiment
+     */
+    public AnalyzedInput analyze(String text) {
+        return analyze(text, SCRATCH.get());
+    }
 
-        // Remove extra whitespace
-        text = text.trim().replaceAll("\\s+", " ");
+    /**
+     * Run the full analysis pipeline using caller-supplied scratch space
+     */
+    public AnalyzedInput analyze(String text, TokenBuffer buffer) {
+        TextNormalizer.normalize(text, buffer, dictionary);
+        String normalized = buffer.toString(text);
 
-        // Remove some punctuation but keep important ones
-        text = text.replaceAll("[^a-zA-Z0-9\\s?!.]", "");
+        int intentMask = matchIntents(buffer);
+        Intent intent = classifyNormalized(buffer, intentMask);
+        SentimentScore sentiment = scoreSentiment(buffer);
 
-        return text;
+        return new AnalyzedInput(text, normalized, buffer.copyTokenStarts(), buffer.copyTokenEnds(),
+                buffer.copyTokenIds(), intentMask, intent, sentiment);
     }
 
     /**
      * Tokenize text into words
      */
     public List<String> tokenize(String text) {
-        String[] words = preprocess(text).split("\\s+");
+        TokenBuffer buffer = SCRATCH.get();
+        TextNormalizer.normalize(text, buffer, dictionary);
         List<String> tokens = new ArrayList<>();
 
-        for (String word : words) {
-            if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
-                tokens.add(word);
+        for (int i = 0; i < buffer.getTokenCount(); i++) {
+            if (!stopWords.contains(buffer.getTokenId(i))) {
+                tokens.add(tokenText(buffer, i));
             }
         }
 
@@ -67,75 +161,193 @@ public class NLPProcessor {
      * Classify user intent based on input
      */
     public Intent classifyIntent(String input) {
-        input = preprocess(input);
+        TokenBuffer buffer = SCRATCH.get();
+        TextNormalizer.normalize(input, buffer, dictionary);
+        return classifyNormalized(buffer, matchIntents(buffer));
+    }
+
+    /**
+     * Classify intent with the phrase rules only, ignoring any statistical classifier
+     */
+    public Intent classifyIntentByRules(String input) {
+        TokenBuffer buffer = SCRATCH.get();
+        TextNormalizer.normalize(input, buffer, dictionary);
+        Intent matched = resolveIntent(matchIntents(buffer));
+        return matched != null ? matched : classifyHeuristically(buffer);
+    }
+
+    /**
+     * Use a statistical classifier alongside the phrase rules (null to use the rules alone)
+     */
+    public void setIntentClassifier(IntentClassifier classifier, ClassifierMode mode, double minConfidence) {
+        this.classifierMode = mode;
+        this.minConfidence = minConfidence;
+        this.classifier = classifier;
+    }
+
+    public IntentClassifier getIntentClassifier() {
+        return classifier;
+    }
+
+    /**
+     * Index of the intent keywords used to correct misspellings, or null when disabled
+     */
+    public SpellingIndex getSpellingIndex() {
+        return intentSpelling;
+    }
+
+    /**
+     * Bitmask of the intents whose phrases occur in the normalized input
+     * When none does, words unknown to the dictionary are corrected against the intent
+     * keywords and the corrected text is matched once more
+     */
+    private int matchIntents(TokenBuffer buffer) {
+        int intentMask = intentMatcher.orValues(buffer);
+        if (intentMask == 0 && intentSpelling != null) {
+            String corrected = intentSpelling.correct(buffer);
+            if (corrected != null) {
+                intentMask = intentMatcher.orValues(corrected);
+            }
+        }
+        return intentMask;
+    }
+
+    /**
+     * Classify already-normalized input from its intent hits and tokens
+     */
+    private Intent classifyNormalized(TokenBuffer buffer, int intentMask) {
+        // Pick the highest-precedence intent among the phrases found
+        Intent matched = resolveIntent(intentMask);
+        IntentClassifier model = classifier;
+        if (model != null && (matched == null || classifierMode == ClassifierMode.BLEND)) {
+            Intent predicted = classifyStatistically(model, buffer, intentMask);
+            if (predicted != null) {
+                return predicted;
+            }
+        }
+        if (matched != null) {
+            return matched;
+        }
+        return classifyHeuristically(buffer);
+    }
 
-        // Check each intent pattern
-        for (Map.Entry<Intent, List<Pattern>> entry : intentPatterns.entrySet()) {
-            for (Pattern pattern : entry.getValue()) {
-                if (pattern.matcher(input).find()) {
-                    return entry.getKey();
+    /**
+     * Classifier prediction, boosted toward matched phrases in blend mode; null if not confident
+     */
+    private Intent classifyStatistically(IntentClassifier model, TokenBuffer buffer, int intentMask) {
+        float[] scores = INTENT_SCORES.get();
+        int best = model.predict(buffer, scores);
+        if (classifierMode == ClassifierMode.BLEND && intentMask != 0) {
+            float boost = (float) Math.log(RULE_BOOST);
+            for (int c = 0; c < scores.length; c++) {
+                if ((intentMask & (1 << c)) != 0) {
+                    scores[c] += boost;
                 }
             }
+            best = IntentClassifier.argmax(scores);
         }
+        return IntentClassifier.confidence(scores, best) >= minConfidence ? INTENTS[best] : null;
+    }
 
-        // Additional heuristic checks
-        if (input.contains("?")) {
+    /**
+     * Fallbacks when nothing else decided
+     */
+    private Intent classifyHeuristically(TokenBuffer buffer) {
+        if (containsChar(buffer, '?')) {
             return Intent.QUESTION;
         }
 
-        if (input.split("\\s+").length > 10) {
+        if (buffer.getTokenCount() > 10) {
             return Intent.PERSONAL; // Assume longer texts are personal
         }
 
         return Intent.UNKNOWN;
     }
 
+    /**
+     * Pick the highest-precedence intent from a bitmask of matched intents
+     */
+    private Intent resolveIntent(int intentMask) {
+        if (intentMask == 0) return null;
+        for (Intent intent : INTENT_PRECEDENCE) {
+            if ((intentMask & (1 << intent.ordinal())) != 0) {
+                return intent;
+            }
+        }
+        return null;
+    }
+
     /**
      * Analyze sentiment of the input
+     * Legacy map form of {@link #scoreSentiment(String)}
      */
     public Map<String, Double> analyzeSentiment(String input) {
-        List<String> tokens = tokenize(input);
-        int positiveCount = 0;
-        int negativeCount = 0;
+        return scoreSentiment(input).toMap();
+    }
 
-        for (String token : tokens) {
-            if (positiveWords.contains(token)) {
-                positiveCount++;
-            } else if (negativeWords.contains(token)) {
-                negativeCount++;
-            }
-        }
+    /**
+     * Score sentiment of the input
+     */
+    public SentimentScore scoreSentiment(String input) {
+        TokenBuffer buffer = SCRATCH.get();
+        TextNormalizer.normalize(input, buffer, dictionary);
+        return scoreSentiment(buffer);
+    }
 
-        int totalSentimentWords = positiveCount + negativeCount;
-        Map<String, Double> sentiment = new HashMap<>();
+    /**
+     * Score sentiment over the tokens of a normalized buffer
+     * Sentiment words are weighted by their lexicon weight, scaled by any intensifiers
+     * directly before them, and counted for the opposite polarity inside a negation window
+     */
+    private SentimentScore scoreSentiment(TokenBuffer buffer) {
+        double positiveWeight = 0;
+        double negativeWeight = 0;
+        double intensity = 1.0;
+        int negatedTokens = 0;
+
+        for (int i = 0; i < buffer.getTokenCount(); i++) {
+            int id = buffer.getTokenId(i);
+
+            if (negators.contains(id)) {
+                negatedTokens = NEGATION_WINDOW;
+                intensity = 1.0;
+                continue;
+            }
+            if (intensifiers.contains(id)) {
+                intensity *= intensifiers.weight(id);
+                continue;
+            }
 
-        if (totalSentimentWords == 0) {
-            sentiment.put("positive", 0.5);
-            sentiment.put("negative", 0.5);
-            sentiment.put("neutral", 1.0);
-        } else {
-            double positive = (double) positiveCount / totalSentimentWords;
-            double negative = (double) negativeCount / totalSentimentWords;
+            double positive = positiveWords.weight(id) * intensity;
+            double negative = negativeWords.weight(id) * intensity;
+            if (negatedTokens > 0) {
+                double swap = positive;
+                positive = negative;
+                negative = swap;
+                negatedTokens--;
+            }
 
-            sentiment.put("positive", positive);
-            sentiment.put("negative", negative);
-            sentiment.put("neutral", 1.0 - Math.max(positive, negative));
+            positiveWeight += positive;
+            negativeWeight += negative;
+            intensity = 1.0;
         }
 
-        return sentiment;
+        return SentimentScore.fromWeights(positiveWeight, negativeWeight);
     }
 
     /**
      * Extract keywords from input
      */
     public List<String> extractKeywords(String input) {
-        List<String> tokens = tokenize(input);
+        TokenBuffer buffer = SCRATCH.get();
+        TextNormalizer.normalize(input, buffer, dictionary);
         List<String> keywords = new ArrayList<>();
 
         // Simple keyword extraction - remove stop words and short words
-        for (String token : tokens) {
-            if (token.length() > 3 && !STOP_WORDS.contains(token)) {
-                keywords.add(token);
+        for (int i = 0; i < buffer.getTokenCount(); i++) {
+            int length = buffer.getTokenEnd(i) - buffer.getTokenStart(i);
+            if (length > 3 && !stopWords.contains(buffer.getTokenId(i))) {
+                keywords.add(tokenText(buffer, i));
             }
         }
 
@@ -143,91 +355,205 @@ public class NLPProcessor {
     }
 
     /**
-     * Initialize intent recognition patterns
+     * Vocabulary used to assign token ids
+     */
+    public TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+    private static String tokenText(TokenBuffer buffer, int index) {
+        return buffer.subSequence(buffer.getTokenStart(index), buffer.getTokenEnd(index)).toString();
+    }
+
+    private static boolean containsChar(CharSequence text, char c) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == c) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Load the classifier named by chatbot.intentModel, in chatbot.intentModel.mode
+     * (fallback or blend) with chatbot.intentModel.minConfidence
+     */
+    private void initializeClassifier() {
+        String modelFile = System.getProperty("chatbot.intentModel");
+        if (modelFile == null) return;
+
+        ClassifierMode mode = ClassifierMode.FALLBACK;
+        String configuredMode = System.getProperty("chatbot.intentModel.mode");
+        if (configuredMode != null) {
+            try {
+                mode = ClassifierMode.valueOf(configuredMode.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown intent classifier mode '" + configuredMode + "', using " + mode);
+            }
+        }
+        double threshold = DEFAULT_MIN_CONFIDENCE;
+        String configuredThreshold = System.getProperty("chatbot.intentModel.minConfidence");
+        if (configuredThreshold != null) {
+            try {
+                threshold = Double.parseDouble(configuredThreshold);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid intent classifier confidence '" + configuredThreshold + "'");
+            }
+        }
+
+        try {
+            setIntentClassifier(IntentClassifier.load(Paths.get(modelFile)), mode, threshold);
+        } catch (IOException e) {
+            System.err.println("Could not load intent model: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Initialize intent recognition phrases and compile them into one automaton
      */
     private void initializeIntentPatterns() {
-        intentPatterns = new HashMap<>();
-
-        // Greeting patterns
-        intentPatterns.put(Intent.GREETING, Arrays.asList(
-                Pattern.compile("\\b(hello|hi|hey|good morning|good afternoon|good evening|greetings)\\b"),
-                Pattern.compile("\\bhow are you\\b"),
-                Pattern.compile("\\bwhat's up\\b"),
-                Pattern.compile("\\bnice to meet\\b")
+        intentPhrases = new EnumMap<>(Intent.class);
+
+        // Greeting phrases
+        intentPhrases.put(Intent.GREETING, List.of(
+                "hello", "hi", "hey", "good morning", "good afternoon", "good evening", "greetings",
+                "how are you", "whats up", "nice to meet"
         ));
 
-        // Farewell patterns
-        intentPatterns.put(Intent.FAREWELL, Arrays.asList(
-                Pattern.compile("\\b(bye|goodbye|see you|farewell|take care|later)\\b"),
-                Pattern.compile("\\bgood night\\b"),
-                Pattern.compile("\\btalk to you later\\b"),
-                Pattern.compile("\\bhave a good\\b")
+        // Farewell phrases
+        intentPhrases.put(Intent.FAREWELL, List.of(
+                "bye", "goodbye", "see you", "farewell", "take care", "later",
+                "good night", "talk to you later", "have a good"
         ));
 
-        // Question patterns
-        intentPatterns.put(Intent.QUESTION, Arrays.asList(
-                Pattern.compile("\\b(what|who|when|where|why|how|which)\\b"),
-                Pattern.compile("\\b(can you|could you|would you)\\b"),
-                Pattern.compile("\\b(do you know|tell me about|explain)\\b"),
-                Pattern.compile("\\bis it\\b|\\bare you\\b")
+        // Question phrases
+        intentPhrases.put(Intent.QUESTION, List.of(
+                "what", "who", "when", "where", "why", "how", "which",
+                "can you", "could you", "would you",
+                "do you know", "tell me about", "explain",
+                "is it", "are you"
         ));
 
-        // Help patterns
-        intentPatterns.put(Intent.HELP, Arrays.asList(
-                Pattern.compile("\\b(help|assist|support|guide)\\b"),
-                Pattern.compile("\\bi need help\\b"),
-                Pattern.compile("\\bcan you help\\b"),
-                Pattern.compile("\\bwhat can you do\\b")
+        // Help phrases
+        intentPhrases.put(Intent.HELP, List.of(
+                "help", "assist", "support", "guide",
+                "i need help", "can you help", "what can you do"
         ));
 
-        // Time patterns
-        intentPatterns.put(Intent.TIME, Arrays.asList(
-                Pattern.compile("\\b(time|clock|hour|minute|date|today|now)\\b"),
-                Pattern.compile("\\bwhat time\\b"),
-                Pattern.compile("\\bcurrent time\\b")
+        // Time phrases
+        intentPhrases.put(Intent.TIME, List.of(
+                "time", "clock", "hour", "minute", "date", "today", "now",
+                "what time", "current time"
         ));
 
-        // Technology patterns
-        intentPatterns.put(Intent.TECHNOLOGY, Arrays.asList(
-                Pattern.compile("\\b(computer|software|program|code|java|python|ai|robot)\\b"),
-                Pattern.compile("\\b(technology|tech|internet|web|app)\\b"),
-                Pattern.compile("\\b(algorithm|machine learning|artificial intelligence)\\b")
+        // Technology phrases
+        intentPhrases.put(Intent.TECHNOLOGY, List.of(
+                "computer", "software", "program", "code", "java", "python", "ai", "robot",
+                "technology", "tech", "internet", "web", "app",
+                "algorithm", "machine learning", "artificial intelligence"
         ));
 
-        // Education patterns
-        intentPatterns.put(Intent.EDUCATION, Arrays.asList(
-                Pattern.compile("\\b(school|study|learn|education|teacher|student)\\b"),
-                Pattern.compile("\\b(university|college|course|lesson|homework)\\b"),
-                Pattern.compile("\\b(book|read|knowledge|subject)\\b")
+        // Education phrases
+        intentPhrases.put(Intent.EDUCATION, List.of(
+                "school", "study", "learn", "education", "teacher", "student",
+                "university", "college", "course", "lesson", "homework",
+                "book", "read", "knowledge", "subject"
         ));
 
-        // Personal patterns
-        intentPatterns.put(Intent.PERSONAL, Arrays.asList(
-                Pattern.compile("\\b(i am|i'm|i feel|i think|i like|i love|i hate)\\b"),
-                Pattern.compile("\\bmy name is\\b"),
-                Pattern.compile("\\bi have\\b"),
-                Pattern.compile("\\btell me about yourself\\b")
+        // Personal phrases
+        intentPhrases.put(Intent.PERSONAL, List.of(
+                "i am", "im", "i feel", "i think", "i like", "i love", "i hate",
+                "my name is", "i have", "tell me about yourself"
         ));
+
+        // Phrases must look like normalized input to match it ("i'm" arrives as "im")
+        for (Map.Entry<Intent, List<String>> entry : intentPhrases.entrySet()) {
+            entry.setValue(normalizePhrases(entry.getValue()));
+        }
+
+        // Compile every phrase into a single matcher; each intent is one bit of the value
+        intentMatcher = new PhraseMatcher();
+        for (Map.Entry<Intent, List<String>> entry : intentPhrases.entrySet()) {
+            int bit = 1 << entry.getKey().ordinal();
+            for (String phrase : entry.getValue()) {
+                intentMatcher.add(phrase, bit);
+            }
+        }
+        intentMatcher.build();
+
+        int maxDistance = SpellingIndex.configuredMaxDistance();
+        if (maxDistance > 0) {
+            intentSpelling = new SpellingIndex(maxDistance);
+            for (List<String> phrases : intentPhrases.values()) {
+                for (String phrase : phrases) {
+                    intentSpelling.addWords(phrase);
+                }
+            }
+            intentSpelling.build();
+        }
     }
 
     /**
-     * Initialize sentiment analysis word lists
+     * Normalize phrases like user input, dropping duplicates and phrases left with no words
+     */
+    private static List<String> normalizePhrases(List<String> phrases) {
+        TokenBuffer buffer = new TokenBuffer();
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String phrase : phrases) {
+            TextNormalizer.normalize(phrase, buffer);
+            if (buffer.getTokenCount() == 0) {
+                System.err.println("Ignoring intent phrase without words: '" + phrase + "'");
+                continue;
+            }
+            normalized.add(buffer.toString());
+        }
+        return List.copyOf(normalized);
+    }
+
+    /**
+     * Load stop word and sentiment lexicons and intern their words, together with
+     * the intent keywords, into the shared token dictionary
      */
     private void initializeSentimentWords() {
-        positiveWords = Set.of(
-                "good", "great", "excellent", "amazing", "wonderful", "fantastic", "awesome", "perfect",
-                "happy", "glad", "pleased", "satisfied", "love", "like", "enjoy", "appreciate",
-                "beautiful", "nice", "cool", "fun", "exciting", "interesting", "helpful", "useful",
-                "thank", "thanks", "brilliant", "outstanding", "superb", "marvelous", "delighted",
-                "positive", "optimistic", "confident", "successful", "win", "victory", "achieve"
-        );
-
-        negativeWords = Set.of(
-                "bad", "terrible", "awful", "horrible", "disgusting", "hate", "dislike", "annoying",
-                "sad", "angry", "mad", "upset", "disappointed", "frustrated", "worried", "concerned",
-                "problem", "issue", "trouble", "difficult", "hard", "impossible", "wrong", "error",
-                "fail", "failure", "lose", "lost", "broken", "damaged", "hurt", "pain", "suffer",
-                "negative", "pessimistic", "depressed", "anxious", "fear", "scared", "boring", "dull"
-        );
-    }
-}
\ No newline at end of file
+        Map<String, Float> stopWordEntries = Lexicon.readEntries("lexicons/stop_words.txt", DEFAULT_STOP_WORDS);
+        Map<String, Float> positiveEntries = Lexicon.readEntries("lexicons/positive.txt", DEFAULT_POSITIVE_WORDS);
+        Map<String, Float> negativeEntries = Lexicon.readEntries("lexicons/negative.txt", DEFAULT_NEGATIVE_WORDS);
+        Map<String, Float> negatorEntries = Lexicon.readEntries("lexicons/negators.txt", DEFAULT_NEGATORS);
+        Map<String, Float> intensifierEntries = Lexicon.readEntries("lexicons/intensifiers.txt", DEFAULT_INTENSIFIERS);
+
+        dictionary = new TokenDictionary();
+        stopWordEntries = internWords(stopWordEntries);
+        positiveEntries = internWords(positiveEntries);
+        negativeEntries = internWords(negativeEntries);
+        negatorEntries = internWords(negatorEntries);
+        intensifierEntries = internWords(intensifierEntries);
+        for (List<String> phrases : intentPhrases.values()) {
+            for (String phrase : phrases) {
+                internWords(Map.of(phrase, 1.0f));
+            }
+        }
+
+        stopWords = new Lexicon(dictionary, stopWordEntries);
+        positiveWords = new Lexicon(dictionary, positiveEntries);
+        negativeWords = new Lexicon(dictionary, negativeEntries);
+        negators = new Lexicon(dictionary, negatorEntries);
+        intensifiers = new Lexicon(dictionary, intensifierEntries);
+    }
+
+    /**
+     * Normalize lexicon words the same way as user input and intern every resulting token
+     * Returns the normalized single-token entries, which are the ones a lexicon can match
+     */
+    private Map<String, Float> internWords(Map<String, Float> entries) {
+        TokenBuffer buffer = new TokenBuffer();
+        Map<String, Float> normalized = new LinkedHashMap<>();
+        for (Map.Entry<String, Float> entry : entries.entrySet()) {
+            TextNormalizer.normalize(entry.getKey(), buffer);
+            for (int i = 0; i < buffer.getTokenCount(); i++) {
+                dictionary.intern(tokenText(buffer, i));
+            }
+            if (buffer.getTokenCount() == 1) {
+                normalized.put(tokenText(buffer, 0), entry.getValue());
+            }
+        }
+        return normalized;
+    }
+}
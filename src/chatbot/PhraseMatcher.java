@@ -0,0 +1,298 @@
+package chatbot;
+
+import java.util.Arrays;
+
+/**
+ * Aho-Corasick automaton over whole-word phrases
+ * Finds every registered phrase in a single left-to-right pass over the input,
+ * so the cost of a scan does not depend on how many phrases are registered
+ */
+public class PhraseMatcher {
+
+    // Compiled automaton (CSR layout: node -> sorted outgoing edges)
+    private int[] edgeStart;
+    private char[] edgeChars;
+    private int[] edgeTargets;
+    private int[] failure;
+
+    // Output of each node: phrase ending here, plus link to the next shorter phrase ending here
+    private int[] outputPhrase;
+    private int[] outputLink;
+
+    // Trie under construction: parent edge of each node and the phrase ending there
+    private int[] nodeParent;
+    private char[] nodeChar;
+    private int[] terminal;
+    private int nodeCount;
+
+    // Registered phrases (texts are only kept until build())
+    private String[] phraseTexts = new String[16];
+    private int[] phraseLengths = new int[16];
+    private int[] phraseValues = new int[16];
+    private int phraseCount;
+
+    private boolean built = false;
+
+    /**
+     * Register a phrase with the value reported when it matches
+     * Registering the same phrase again replaces its value
+     */
+    public void add(CharSequence phrase, int value) {
+        if (built) {
+            throw new IllegalStateException("Cannot add phrases after build()");
+        }
+        if (phrase == null || phrase.length() == 0) return;
+
+        if (phraseCount == phraseLengths.length) {
+            phraseTexts = Arrays.copyOf(phraseTexts, phraseCount * 2);
+            phraseLengths = Arrays.copyOf(phraseLengths, phraseCount * 2);
+            phraseValues = Arrays.copyOf(phraseValues, phraseCount * 2);
+        }
+        phraseTexts[phraseCount] = phrase.toString();
+        phraseLengths[phraseCount] = phrase.length();
+        phraseValues[phraseCount] = value;
+        phraseCount++;
+    }
+
+    /**
+     * Number of registered phrases
+     */
+    public int size() {
+        return phraseCount;
+    }
+
+    /**
+     * Compile the registered phrases into the automaton
+     */
+    public PhraseMatcher build() {
+        if (built) return this;
+        buildTrie();
+
+        // Flatten the trie into CSR arrays: count children per parent, then place them
+        int edgeCount = nodeCount - 1;
+        edgeStart = new int[nodeCount + 1];
+        edgeChars = new char[edgeCount];
+        edgeTargets = new int[edgeCount];
+        for (int node = 1; node < nodeCount; node++) {
+            edgeStart[nodeParent[node] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            edgeStart[node + 1] += edgeStart[node];
+        }
+        int[] fill = Arrays.copyOf(edgeStart, nodeCount);
+        for (int node = 1; node < nodeCount; node++) {
+            int e = fill[nodeParent[node]]++;
+            edgeChars[e] = nodeChar[node];
+            edgeTargets[e] = node;
+        }
+
+        // Construction-only structures are no longer needed
+        nodeParent = null;
+        nodeChar = null;
+
+        // Breadth-first computation of failure and output links
+        failure = new int[nodeCount];
+        outputPhrase = Arrays.copyOf(terminal, nodeCount);
+        outputLink = new int[nodeCount];
+        Arrays.fill(outputLink, -1);
+        terminal = null;
+
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int i = edgeStart[0]; i < edgeStart[1]; i++) {
+            queue[tail++] = edgeTargets[i];
+        }
+
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = edgeStart[node]; i < edgeStart[node + 1]; i++) {
+                int child = edgeTargets[i];
+                char c = edgeChars[i];
+
+                int f = failure[node];
+                int target = transition(f, c);
+                while (target < 0 && f != 0) {
+                    f = failure[f];
+                    target = transition(f, c);
+                }
+                int childFailure = target < 0 ? 0 : target;
+                failure[child] = childFailure;
+                outputLink[child] = outputPhrase[childFailure] >= 0 ? childFailure : outputLink[childFailure];
+
+                queue[tail++] = child;
+            }
+        }
+
+        phraseLengths = Arrays.copyOf(phraseLengths, phraseCount);
+        phraseValues = Arrays.copyOf(phraseValues, phraseCount);
+        built = true;
+        return this;
+    }
+
+    /**
+     * Bitwise OR of the values of every phrase found in the text
+     */
+    public int orValues(CharSequence text) {
+        checkBuilt();
+        int result = 0;
+        int node = 0;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            node = step(node, text.charAt(i));
+            int end = i + 1;
+            if (end < length && Hashing.isWordChar(text.charAt(end))) continue;
+
+            for (int out = outputPhrase[node] >= 0 ? node : outputLink[node]; out >= 0; out = outputLink[out]) {
+                int phrase = outputPhrase[out];
+                if (startsAtBoundary(text, end - phraseLengths[phrase])) {
+                    result |= phraseValues[phrase];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Index of the longest phrase found in the text, or -1 if none matches
+     */
+    public int longestMatch(CharSequence text) {
+        checkBuilt();
+        int best = -1;
+        int node = 0;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            node = step(node, text.charAt(i));
+            int end = i + 1;
+            if (end < length && Hashing.isWordChar(text.charAt(end))) continue;
+
+            for (int out = outputPhrase[node] >= 0 ? node : outputLink[node]; out >= 0; out = outputLink[out]) {
+                int phrase = outputPhrase[out];
+                if ((best < 0 || phraseLengths[phrase] > phraseLengths[best])
+                        && startsAtBoundary(text, end - phraseLengths[phrase])) {
+                    best = phrase;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Value registered for a phrase index
+     */
+    public int valueOf(int phraseIndex) {
+        checkBuilt();
+        return phraseValues[phraseIndex];
+    }
+
+    /**
+     * Length in characters of a phrase index
+     */
+    public int lengthOf(int phraseIndex) {
+        checkBuilt();
+        return phraseLengths[phraseIndex];
+    }
+
+    /**
+     * Follow the goto/failure transitions for one input character
+     */
+    private int step(int node, char c) {
+        while (true) {
+            int next = transition(node, c);
+            if (next >= 0) return next;
+            if (node == 0) return 0;
+            node = failure[node];
+        }
+    }
+
+    /**
+     * Goto transition for a node, or -1 if there is no edge for the character
+     */
+    private int transition(int node, char c) {
+        int low = edgeStart[node];
+        int high = edgeStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsAtBoundary(CharSequence text, int start) {
+        return start == 0 || !Hashing.isWordChar(text.charAt(start - 1));
+    }
+
+    private void checkBuilt() {
+        if (!built) {
+            throw new IllegalStateException("PhraseMatcher has not been built");
+        }
+    }
+
+    /**
+     * Build the trie by inserting the phrases in sorted order
+     * Each phrase only needs new nodes past its common prefix with the previous one,
+     * and every node receives its children in ascending character order
+     */
+    private void buildTrie() {
+        Integer[] order = new Integer[phraseCount];
+        for (int i = 0; i < phraseCount; i++) {
+            order[i] = i;
+        }
+        // Stable sort: for duplicate phrases the later registration is inserted last and wins
+        Arrays.parallelSort(order, (a, b) -> phraseTexts[a].compareTo(phraseTexts[b]));
+
+        int capacity = 64;
+        nodeParent = new int[capacity];
+        nodeChar = new char[capacity];
+        terminal = new int[capacity];
+        terminal[0] = -1;
+        nodeCount = 1;
+
+        int[] path = new int[17];
+        String previous = "";
+        for (int p : order) {
+            String phrase = phraseTexts[p];
+            if (path.length <= phrase.length()) {
+                path = Arrays.copyOf(path, phrase.length() * 2);
+            }
+
+            int common = 0;
+            int limit = Math.min(previous.length(), phrase.length());
+            while (common < limit && previous.charAt(common) == phrase.charAt(common)) {
+                common++;
+            }
+
+            for (int depth = common; depth < phrase.length(); depth++) {
+                path[depth + 1] = newNode(path[depth], phrase.charAt(depth));
+            }
+            terminal[path[phrase.length()]] = p;
+            previous = phrase;
+        }
+
+        phraseTexts = null;
+    }
+
+    private int newNode(int parent, char c) {
+        if (nodeCount == terminal.length) {
+            nodeParent = Arrays.copyOf(nodeParent, nodeCount * 2);
+            nodeChar = Arrays.copyOf(nodeChar, nodeCount * 2);
+            terminal = Arrays.copyOf(terminal, nodeCount * 2);
+        }
+        int node = nodeCount++;
+        nodeParent[node] = parent;
+        nodeChar[node] = c;
+        terminal[node] = -1;
+        return node;
+    }
+}
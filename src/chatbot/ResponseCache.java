@@ -0,0 +1,360 @@
+package chatbot;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Bounded, weight-aware concurrent cache with W-TinyLFU admission and eviction
+ * New entries enter a small LRU window; entries leaving the window only displace
+ * an entry of the main segmented LRU if a frequency sketch has seen them more often,
+ * so one-off inputs cannot flush popular ones
+ */
+public class ResponseCache<K, V> {
+
+    // Share of the total weight given to the admission window and, within main, to protected entries
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.80;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = 3;
+
+    private static final class Node<K, V> {
+        private final K key;
+        private V value;
+        private int weight;
+        private int queue;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Node<K, V>> entries = new ConcurrentHashMap<>();
+    private final ToIntBiFunction<K, V> weigher;
+    private final FrequencySketch sketch;
+
+    // Eviction policy; guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Node<K, V>[] queues;
+    private final long[] queueWeights = new long[3];
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Cache holding at most maximumWeight units as measured by the weigher
+     * expectedEntries sizes the frequency sketch
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ResponseCache(int expectedEntries, long maximumWeight, ToIntBiFunction<K, V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maximumWeight);
+        }
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(Math.max(16, expectedEntries));
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_SHARE));
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_SHARE);
+
+        queues = new Node[3];
+        for (int i = 0; i < queues.length; i++) {
+            Node<K, V> sentinel = new Node<>(null, null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            queues[i] = sentinel;
+        }
+    }
+
+    /**
+     * Cached value for the key, or null
+     * Policy bookkeeping is skipped when another thread holds the lock, so readers never block
+     */
+    public V get(K key) {
+        Node<K, V> node = entries.get(key);
+        if (node == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(key.hashCode());
+                if (node != null && node.queue != REMOVED) {
+                    onAccess(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Insert or replace a value; values heavier than the whole cache are not stored
+     */
+    public void put(K key, V value) {
+        int weight = weigher.applyAsInt(key, value);
+        lock.lock();
+        try {
+            sketch.increment(key.hashCode());
+            Node<K, V> node = entries.get(key);
+            if (node != null) {
+                queueWeights[node.queue] += weight - node.weight;
+                node.value = value;
+                node.weight = weight;
+                onAccess(node);
+            } else {
+                if (weight > maximumWeight) return;
+                node = new Node<>(key, value, weight);
+                node.queue = WINDOW;
+                append(WINDOW, node);
+                entries.put(key, node);
+            }
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop every entry; statistics are kept
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (Node<K, V> node : entries.values()) {
+                node.queue = REMOVED;
+            }
+            entries.clear();
+            for (int i = 0; i < queues.length; i++) {
+                queues[i].prev = queues[i];
+                queues[i].next = queues[i];
+                queueWeights[i] = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Total weight of the cached entries
+     */
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return queueWeights[WINDOW] + queueWeights[PROBATION] + queueWeights[PROTECTED];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Fraction of lookups answered from the cache (0 when nothing was looked up)
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public double getMissRate() {
+        long missCount = misses.sum();
+        long total = hits.sum() + missCount;
+        return total == 0 ? 0.0 : (double) missCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entries, hit rate %.1f%%, %d hits, %d misses, %d evictions",
+                size(), getHitRate() * 100, getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    /**
+     * Move an accessed node to the MRU end of its queue; probation hits are promoted
+     */
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == PROBATION) {
+            move(node, PROTECTED);
+            // Demote the oldest protected entries back to probation when protected overflows
+            while (queueWeights[PROTECTED] > protectedMaximum) {
+                move(queues[PROTECTED].next, PROBATION);
+            }
+        } else {
+            unlink(node);
+            append(node.queue, node);
+        }
+    }
+
+    /**
+     * Move window overflow into probation, then evict until the cache fits
+     * Each entry leaving the window competes with the probation LRU victim;
+     * whichever the sketch reports as less frequent is evicted
+     */
+    private void evict() {
+        Node<K, V> candidate = null;
+        while (queueWeights[WINDOW] > windowMaximum) {
+            Node<K, V> node = queues[WINDOW].next;
+            move(node, PROBATION);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+
+        while (totalWeight() > maximumWeight) {
+            Node<K, V> victim = firstOf(PROBATION);
+            if (victim == null) victim = firstOf(PROTECTED);
+            if (victim == null) victim = firstOf(WINDOW);
+
+            if (candidate == null || candidate == victim || candidate.queue != PROBATION) {
+                remove(victim);
+            } else if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                remove(victim);
+            } else {
+                Node<K, V> rejected = candidate;
+                candidate = candidate.next == queues[PROBATION] ? null : candidate.next;
+                remove(rejected);
+            }
+        }
+    }
+
+    private long totalWeight() {
+        return queueWeights[WINDOW] + queueWeights[PROBATION] + queueWeights[PROTECTED];
+    }
+
+    private Node<K, V> firstOf(int queue) {
+        Node<K, V> first = queues[queue].next;
+        return first == queues[queue] ? null : first;
+    }
+
+    private void move(Node<K, V> node, int queue) {
+        unlink(node);
+        node.queue = queue;
+        append(queue, node);
+    }
+
+    private void remove(Node<K, V> node) {
+        unlink(node);
+        node.queue = REMOVED;
+        entries.remove(node.key, node);
+        evictions.increment();
+    }
+
+    private void append(int queue, Node<K, V> node) {
+        Node<K, V> sentinel = queues[queue];
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+        queueWeights[queue] += node.weight;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        queueWeights[node.queue] -= node.weight;
+    }
+
+    /**
+     * Count-Min sketch of 4-bit counters used to estimate access frequency
+     * Counters are halved once the sample size is reached, so the estimate ages
+     * and favours recent popularity
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int expectedEntries) {
+            int length = Integer.highestOneBit(expectedEntries - 1) << 1;
+            this.table = new long[length];
+            this.tableMask = length - 1;
+            this.sampleSize = 10 * expectedEntries;
+        }
+
+        /**
+         * Estimated number of recent occurrences (0-15)
+         */
+        int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int depth = 0; depth < 4; depth++) {
+                int offset = (start + depth) << 2;
+                frequency = Math.min(frequency, (int) ((table[indexOf(hash, depth)] >>> offset) & 0xF));
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int depth = 0; depth < 4; depth++) {
+                int index = indexOf(hash, depth);
+                int offset = (start + depth) << 2;
+                if (((table[index] >>> offset) & 0xF) != 0xF) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int indexOf(int hash, int depth) {
+            long h = (hash + SEEDS[depth]) * SEEDS[depth];
+            h += h >>> 32;
+            return (int) h & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package chatbot;
+
+import java.util.function.Consumer;
+
+/**
+ * Splits a response into word-sized chunks for incremental delivery
+ * Each chunk is a word followed by the whitespace after it, so concatenating
+ * the chunks reproduces the response exactly
+ */
+public final class ResponseChunker {
+
+    private ResponseChunker() {
+    }
+
+    /**
+     * Deliver the chunks of the text to the sink, in order
+     */
+    public static void forEachChunk(CharSequence text, Consumer<? super String> sink) {
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            // Leading whitespace belongs to the first chunk
+            while (end < length && Character.isWhitespace(text.charAt(end))) end++;
+            while (end < length && !Character.isWhitespace(text.charAt(end))) end++;
+            while (end < length && Character.isWhitespace(text.charAt(end))) end++;
+            sink.accept(text.subSequence(start, end).toString());
+            start = end;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package chatbot;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalTime;
 import java.util.*;
 import chatbot.ChatbotEngine.Intent;
 
@@ -11,126 +10,306 @@ import chatbot.ChatbotEngine.Intent;
  */
 public class ResponseGenerator {
 
+    // Response cache bounds (weight = characters of input plus response)
+    private static final int RESPONSE_CACHE_ENTRIES = 4096;
+    private static final long RESPONSE_CACHE_MAX_WEIGHT = 1 << 20;
+    private static final int CACHE_ENTRY_OVERHEAD = 32;
+
+    private static final String[] ENTHUSIASTIC_ENDINGS = {" 😊", " That's great!", " I love your enthusiasm!", " Awesome!"};
+    private static final String[] EMPATHETIC_ENDINGS = {" I understand.", " I'm here if you need to talk.",
+            " Things will get better.", " Take care."};
+    private static final String[] CONTINUATIONS = {"Also, ", "Additionally, ", "By the way, ", "Furthermore, "};
+    private static final String[] JOKES = {
+            "Why don't scientists trust atoms? Because they make up everything!",
+            "Why did the programmer quit his job? He didn't get arrays!",
+            "How do you comfort a JavaScript bug? You console it!",
+            "Why do Java developers wear glasses? Because they don't see sharp!",
+            "What's a computer's favorite snack? Chips!",
+            "Why was the computer cold? It left its Windows open!",
+            "What do you call a programmer from Finland? Nerdic!",
+            "Why don't programmers like nature? It has too many bugs!"
+    };
+
+    // Reusable per-thread buffer that decorated and templated responses are rendered into
+    private static final ThreadLocal<StringBuilder> RENDER_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
     private Map<Intent, List<String>> responseTemplates;
-    private Random random;
-    private String botName = "CodeBot";
-    private int conversationTurn = 0;
+    private final Map<Intent, ResponseTemplate[]> compiledTemplates = new EnumMap<>(Intent.class);
+    private final String botName = "CodeBot";
+    private final ResponseCache<CacheKey, BaseResponse> responseCache = new ResponseCache<>(
+            RESPONSE_CACHE_ENTRIES, RESPONSE_CACHE_MAX_WEIGHT,
+            (key, response) -> key.normalizedText.length() + response.text.length() + CACHE_ENTRY_OVERHEAD);
 
-    // Context tracking
-    private Intent lastIntent = Intent.UNKNOWN;
-    private String lastTopic = "";
+    /**
+     * Response before per-session decoration
+     * Specific responses are returned as-is; cacheable ones depend only on the cache key.
+     * A picked template is kept unrendered until the final response is assembled
+     */
+    private static final class BaseResponse {
+        private final String text;
+        private final ResponseTemplate template;
+        private final boolean specific;
+        private final boolean cacheable;
+
+        private BaseResponse(String text, boolean specific, boolean cacheable) {
+            this.text = text;
+            this.template = null;
+            this.specific = specific;
+            this.cacheable = cacheable;
+        }
+
+        private BaseResponse(ResponseTemplate template) {
+            this.text = null;
+            this.template = template;
+            this.specific = false;
+            this.cacheable = false;
+        }
+    }
+
+    /**
+     * Cache key: normalized input, intent and sentiment bucket
+     */
+    private static final class CacheKey {
+        private final String normalizedText;
+        private final Intent intent;
+        private final int sentimentBucket;
+        private final int hash;
+
+        private CacheKey(String normalizedText, Intent intent, int sentimentBucket) {
+            this.normalizedText = normalizedText;
+            this.intent = intent;
+            this.sentimentBucket = sentimentBucket;
+            this.hash = (normalizedText.hashCode() * 31 + intent.hashCode()) * 31 + sentimentBucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return hash == other.hash && intent == other.intent
+                    && sentimentBucket == other.sentimentBucket && normalizedText.equals(other.normalizedText);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 
     public ResponseGenerator() {
-        this.random = new Random();
         initializeResponseTemplates();
     }
 
     /**
-     * Generate response based on intent, input, and sentiment
+     * Cache of deterministic responses, for hit/miss statistics
+     */
+    public ResponseCache<?, ?> getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Generate response for an analyzed user message
+     * All conversation state (turn count, last intent, randomness) comes from the session,
+     * so one generator can serve any number of sessions concurrently
      */
-    public String generateResponse(Intent intent, String processedInput, Map<String, Double> sentiment) {
-        conversationTurn++;
-
-        // Check for specific patterns first
-        String specificResponse = getSpecificResponse(processedInput);
-        if (specificResponse != null) {
-            lastIntent = intent;
-            return specificResponse;
+    public String generateResponse(AnalyzedInput input, SessionContext session) {
+        return generateResponse(input, session, null);
+    }
+
+    /**
+     * Generate response, answering from the knowledge base where no specific pattern or
+     * dynamic intent (the current time) applies
+     * Precedence: specific patterns, the time, a knowledge-base entry covering the whole
+     * message (or, for UNKNOWN messages, the most similar entry), then contextual replies
+     */
+    public String generateResponse(AnalyzedInput input, SessionContext session, KnowledgeBase knowledgeBase) {
+        session.nextTurn();
+        Intent intent = input.getIntent();
+        SentimentScore sentiment = input.getSentiment();
+
+        // Deterministic answers are computed once per input, intent and sentiment bucket
+        CacheKey key = new CacheKey(input.getNormalizedText(), intent, sentimentBucket(sentiment));
+        BaseResponse base = responseCache.get(key);
+        if (base == null) {
+            base = getSpecificResponse(input, session.getRandom());
+            if (base != null && base.cacheable) {
+                responseCache.put(key, base);
+            }
         }
 
-        // Generate contextual response
-        String response = generateContextualResponse(intent, processedInput, sentiment);
+        // Knowledge-base answers are never cached: a reload may change them, so a cached
+        // contextual reply only stands while the current knowledge base has no answer
+        if ((base == null || !base.specific) && knowledgeBase != null && intent != Intent.TIME) {
+            String answer = knowledgeBase.lookup(input.getNormalizedText());
+            if (answer == null && intent == Intent.UNKNOWN) {
+                answer = knowledgeBase.lookupSimilar(input.getNormalizedText());
+            }
+            if (answer != null) {
+                session.setLastIntent(intent);
+                return answer;
+            }
+        }
+
+        if (base == null) {
+            base = generateContextualResponse(intent, input.getNormalizedText(), sentiment, session);
+            if (base.cacheable) {
+                responseCache.put(key, base);
+            }
+        }
+
+        if (base.specific) {
+            session.setLastIntent(intent);
+            return base.text;
+        }
 
         // Add personality based on sentiment
-        response = addPersonality(response, sentiment);
+        String ending = personalityEnding(sentiment, session.getRandom());
 
         // Add context awareness
-        response = addContextAwareness(response, intent);
+        String continuation = continuationPrefix(intent, session);
 
-        lastIntent = intent;
-        return response;
+        session.setLastIntent(intent);
+        if (base.template == null && ending == null && continuation == null) {
+            return base.text;
+        }
+        return render(base, ending, continuation, session);
     }
 
     /**
-     * Generate contextual response based on intent
+     * Assemble the final response in the reusable buffer
+     * A continuation lowercases everything after it in place instead of copying the response
      */
-    private String generateContextualResponse(Intent intent, String input, Map<String, Double> sentiment) {
-        List<String> templates = responseTemplates.getOrDefault(intent, responseTemplates.get(Intent.UNKNOWN));
-        String baseResponse = templates.get(random.nextInt(templates.size()));
+    private String render(BaseResponse base, String ending, String continuation, SessionContext session) {
+        StringBuilder out = RENDER_BUFFER.get();
+        out.setLength(0);
+
+        if (continuation != null) {
+            out.append(continuation);
+        }
+        int bodyStart = out.length();
 
-        // Replace placeholders
-        baseResponse = baseResponse.replace("{name}", botName);
-        baseResponse = baseResponse.replace("{time}", getCurrentTime());
-        baseResponse = baseResponse.replace("{turn}", String.valueOf(conversationTurn));
+        if (base.template != null) {
+            base.template.render(out, botName, session.getConversationTurn());
+        } else {
+            out.append(base.text);
+        }
+        if (ending != null) {
+            out.append(ending);
+        }
+
+        if (continuation != null) {
+            for (int i = bodyStart; i < out.length(); i++) {
+                out.setCharAt(i, Character.toLowerCase(out.charAt(i)));
+            }
+        }
+        return out.toString();
+    }
 
+    /**
+     * Sentiment bucket: which of the thresholds used by response generation the scores cross
+     */
+    private static int sentimentBucket(SentimentScore sentiment) {
+        if (sentiment.getPositive() > 0.7) return 2;
+        if (sentiment.getPositive() > 0.6) return 1;
+        if (sentiment.getNegative() > 0.7) return -2;
+        if (sentiment.getNegative() > 0.6) return -1;
+        return 0;
+    }
+
+    /**
+     * Generate contextual response based on intent
+     * Templates are picked at random and time answers change, so neither is cacheable
+     */
+    private BaseResponse generateContextualResponse(Intent intent, String input, SentimentScore sentiment,
+                                                    SessionContext session) {
         // Handle specific intents with dynamic content
         switch (intent) {
             case TIME:
-                return "The current time is " + getCurrentTime() + ". Is there anything else I can help you with?";
+                return new BaseResponse("The current time is " + getCurrentTime()
+                        + ". Is there anything else I can help you with?", false, false);
 
             case TECHNOLOGY:
-                return generateTechResponse(input);
+                return new BaseResponse(generateTechResponse(input), false, true);
 
             case EDUCATION:
-                return generateEducationResponse(input);
+                return new BaseResponse(generateEducationResponse(input), false, true);
 
             case PERSONAL:
-                return generatePersonalResponse(input, sentiment);
+                return new BaseResponse(generatePersonalResponse(input, sentiment), false, true);
 
             case QUESTION:
                 return generateQuestionResponse(input);
 
             default:
-                return baseResponse;
+                // Placeholders are filled in when the final response is rendered
+                ResponseTemplate[] templates = compiledTemplates.getOrDefault(intent, compiledTemplates.get(Intent.UNKNOWN));
+                return new BaseResponse(templates[session.getRandom().nextInt(templates.length)]);
         }
     }
 
     /**
      * Check for specific patterns and return custom responses
+     * Everything except jokes and "I am Name" introductions depends only on the normalized input and is cacheable
      */
-    private String getSpecificResponse(String input) {
-        // Name detection
-        if (input.contains("my name is") || input.contains("i am") || input.contains("i'm")) {
-            String[] words = input.split("\\s+");
-            for (int i = 0; i < words.length - 1; i++) {
-                if ((words[i].equals("my") && words[i+1].equals("name")) ||
-                        words[i].equals("am") || words[i].equals("i'm")) {
-                    if (i + 2 < words.length) {
-                        String name = words[i + 2];
-                        return "Nice to meet you, " + capitalize(name) + "! I'm " + botName + ", your AI assistant.";
-                    }
-                }
+    private BaseResponse getSpecificResponse(AnalyzedInput analyzed, Random random) {
+        String input = analyzed.getNormalizedText();
+
+        // Name detection ("i'm" arrives normalized as "im"): the word after "my name is" or
+        // "call me"; after "am"/"im" only a last word that is not a known word and was typed
+        // capitalized ("I am Sam", not "i am tired" or "im going home")
+        int words = analyzed.getTokenCount();
+        for (int i = 0; i < words; i++) {
+            if (i + 3 < words && analyzed.tokenEquals(i, "my") && analyzed.tokenEquals(i + 1, "name")
+                    && analyzed.tokenEquals(i + 2, "is")) {
+                return specific(greeting(analyzed.getToken(i + 3)));
+            }
+            if (i + 2 < words && analyzed.tokenEquals(i, "call") && analyzed.tokenEquals(i + 1, "me")) {
+                return specific(greeting(analyzed.getToken(i + 2)));
             }
-            return "Nice to meet you! I'm " + botName + ", your AI assistant.";
+        }
+        if (words >= 2 && (analyzed.tokenEquals(words - 2, "am") || analyzed.tokenEquals(words - 2, "im"))
+                && analyzed.getTokenId(words - 1) == TokenDictionary.UNKNOWN_ID) {
+            // Depends on the raw casing, which the cache key does not carry
+            String name = analyzed.getToken(words - 1);
+            return new BaseResponse(greeting(endsWithCapitalized(analyzed.getOriginalText(), name) ? name : null),
+                    true, false);
+        }
+        if (input.contains("my name is") || input.contains("i am")) {
+            return specific(greeting(null));
         }
 
         // Joke request
         if (input.contains("joke") || input.contains("funny")) {
-            return getRandomJoke();
+            return new BaseResponse(getRandomJoke(random), true, false);
         }
 
         // About bot
         if (input.contains("who are you") || input.contains("what are you")) {
-            return "I'm " + botName + ", an AI chatbot created as part of a CodeAlpha internship project. " +
-                    "I use Java and NLP techniques to understand and respond to your messages!";
+            return specific("I'm " + botName + ", an AI chatbot created as part of a CodeAlpha internship project. " +
+                    "I use Java and NLP techniques to understand and respond to your messages!");
         }
 
         // Creator info
         if (input.contains("who created") || input.contains("who made")) {
-            return "I was created by a talented intern as part of the CodeAlpha Java programming internship. " +
-                    "The project showcases NLP, machine learning concepts, and GUI development!";
+            return specific("I was created by a talented intern as part of the CodeAlpha Java programming internship. " +
+                    "The project showcases NLP, machine learning concepts, and GUI development!");
         }
 
         // Capabilities
         if (input.contains("what can you do") || input.contains("your capabilities")) {
-            return "I can chat with you, answer questions, tell jokes, provide information about various topics, " +
+            return specific("I can chat with you, answer questions, tell jokes, provide information about various topics, " +
                     "analyze the sentiment of our conversation, and learn from our interactions. Try asking me about " +
-                    "technology, education, or just have a casual conversation!";
+                    "technology, education, or just have a casual conversation!");
         }
 
         return null;
     }
 
+    private static BaseResponse specific(String text) {
+        return new BaseResponse(text, true, true);
+    }
+
     /**
      * Generate technology-related responses
      */
@@ -169,9 +348,9 @@ public class ResponseGenerator {
     /**
      * Generate personal responses based on sentiment
      */
-    private String generatePersonalResponse(String input, Map<String, Double> sentiment) {
-        double positiveScore = sentiment.get("positive");
-        double negativeScore = sentiment.get("negative");
+    private String generatePersonalResponse(String input, SentimentScore sentiment) {
+        double positiveScore = sentiment.getPositive();
+        double negativeScore = sentiment.getNegative();
 
         if (positiveScore > 0.6) {
             return "That's wonderful to hear! I'm glad you're feeling positive. " +
@@ -189,88 +368,95 @@ public class ResponseGenerator {
     /**
      * Generate question responses
      */
-    private String generateQuestionResponse(String input) {
+    private BaseResponse generateQuestionResponse(String input) {
+        String response;
         if (input.contains("what") && input.contains("time")) {
-            return "The current time is " + getCurrentTime() + ".";
+            return new BaseResponse("The current time is " + getCurrentTime() + ".", false, false);
         } else if (input.contains("how") && input.contains("are you")) {
-            return "I'm doing well, thank you for asking! I'm here and ready to chat. How are you doing today?";
+            response = "I'm doing well, thank you for asking! I'm here and ready to chat. How are you doing today?";
         } else if (input.contains("why")) {
-            return "That's a thoughtful question! The 'why' behind things often reveals deeper understanding. " +
+            response = "That's a thoughtful question! The 'why' behind things often reveals deeper understanding. " +
                     "Could you provide more context so I can give you a better answer?";
         } else if (input.contains("how")) {
-            return "Great question! The 'how' of things is often just as important as the 'what'. " +
+            response = "Great question! The 'how' of things is often just as important as the 'what'. " +
                     "Let me know more details and I'll do my best to help explain!";
+        } else {
+            response = "That's an interesting question! I'll do my best to help. Could you provide a bit more " +
+                    "context or be more specific about what you'd like to know?";
         }
-
-        return "That's an interesting question! I'll do my best to help. Could you provide a bit more " +
-                "context or be more specific about what you'd like to know?";
+        return new BaseResponse(response, false, true);
     }
 
     /**
-     * Add personality based on sentiment analysis
+     * Personality ending based on sentiment analysis, or null for none
      */
-    private String addPersonality(String response, Map<String, Double> sentiment) {
-        double positiveScore = sentiment.get("positive");
-        double negativeScore = sentiment.get("negative");
+    private String personalityEnding(SentimentScore sentiment, Random random) {
+        double positiveScore = sentiment.getPositive();
+        double negativeScore = sentiment.getNegative();
 
         // Add enthusiasm for positive sentiment
         if (positiveScore > 0.7) {
-            String[] enthusiasticEndings = {" 😊", " That's great!", " I love your enthusiasm!", " Awesome!"};
-            response += enthusiasticEndings[random.nextInt(enthusiasticEndings.length)];
+            return ENTHUSIASTIC_ENDINGS[random.nextInt(ENTHUSIASTIC_ENDINGS.length)];
         }
 
         // Add empathy for negative sentiment
         else if (negativeScore > 0.7) {
-            String[] empatheticEndings = {" I understand.", " I'm here if you need to talk.",
-                    " Things will get better.", " Take care."};
-            response += empatheticEndings[random.nextInt(empatheticEndings.length)];
+            return EMPATHETIC_ENDINGS[random.nextInt(EMPATHETIC_ENDINGS.length)];
         }
 
-        return response;
+        return null;
     }
 
     /**
-     * Add context awareness to responses
+     * Continuation prefix for context awareness, or null for none
      */
-    private String addContextAwareness(String response, Intent currentIntent) {
+    private String continuationPrefix(Intent currentIntent, SessionContext session) {
+        Random random = session.getRandom();
+
         // If repeating same intent, acknowledge continuation
-        if (lastIntent == currentIntent && currentIntent != Intent.UNKNOWN) {
+        if (session.getLastIntent() == currentIntent && currentIntent != Intent.UNKNOWN) {
             if (random.nextDouble() < 0.3) { // 30% chance to acknowledge continuation
-                String[] continuations = {"Also, ", "Additionally, ", "By the way, ", "Furthermore, "};
-                response = continuations[random.nextInt(continuations.length)] + response.toLowerCase();
+                return CONTINUATIONS[random.nextInt(CONTINUATIONS.length)];
             }
         }
 
-        return response;
+        return null;
     }
 
     /**
      * Get current time formatted
      */
     private String getCurrentTime() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        return LocalTime.now().format(ResponseTemplate.TIME_FORMAT);
     }
 
     /**
      * Get random joke
      */
-    private String getRandomJoke() {
-        String[] jokes = {
-                "Why don't scientists trust atoms? Because they make up everything!",
-                "Why did the programmer quit his job? He didn't get arrays!",
-                "How do you comfort a JavaScript bug? You console it!",
-                "Why do Java developers wear glasses? Because they don't see sharp!",
-                "What's a computer's favorite snack? Chips!",
-                "Why was the computer cold? It left its Windows open!",
-                "What do you call a programmer from Finland? Nerdic!",
-                "Why don't programmers like nature? It has too many bugs!"
-        };
-        return jokes[random.nextInt(jokes.length)];
+    private String getRandomJoke(Random random) {
+        return JOKES[random.nextInt(JOKES.length)];
     }
 
     /**
      * Capitalize first letter of string
      */
+    private String greeting(String name) {
+        return (name == null ? "Nice to meet you!" : "Nice to meet you, " + capitalize(name) + "!")
+                + " I'm " + botName + ", your AI assistant.";
+    }
+
+    /**
+     * Whether the last word of the raw text is the given word, typed with a capital letter
+     */
+    private static boolean endsWithCapitalized(String text, String word) {
+        int end = text.length();
+        while (end > 0 && !Character.isLetterOrDigit(text.charAt(end - 1))) end--;
+        int start = end - word.length();
+        return start >= 0 && (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+                && Character.isUpperCase(text.charAt(start))
+                && text.regionMatches(true, start, word, 0, word.length());
+    }
+
     private String capitalize(String str) {
         if (str == null || str.isEmpty()) return str;
         return str.substring(0, 1).toUpperCase() + str.substring(1);
@@ -377,5 +563,14 @@ public class ResponseGenerator {
                 "I'm here to chat! What would you like to talk about?",
                 "Let's explore that topic together! Tell me more."
         ));
+
+        // Parse every template once
+        for (Map.Entry<Intent, List<String>> entry : responseTemplates.entrySet()) {
+            ResponseTemplate[] templates = new ResponseTemplate[entry.getValue().size()];
+            for (int i = 0; i < templates.length; i++) {
+                templates[i] = ResponseTemplate.compile(entry.getValue().get(i));
+            }
+            compiledTemplates.put(entry.getKey(), templates);
+        }
     }
 }
\ No newline at end of file
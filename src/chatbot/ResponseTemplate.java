@@ -0,0 +1,106 @@
+package chatbot;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response template parsed once into literal and placeholder segments
+ * Supported placeholders are {name}, {time} and {turn}; any other braces are literal text.
+ * Rendering appends straight into a caller-supplied StringBuilder
+ */
+public final class ResponseTemplate {
+
+    // Formatter for {time} and the time answers, built once instead of per message
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private enum Placeholder {
+        NAME("{name}"), TIME("{time}"), TURN("{turn}");
+
+        private final String token;
+
+        Placeholder(String token) {
+            this.token = token;
+        }
+    }
+
+    private static final Placeholder[] PLACEHOLDERS = Placeholder.values();
+
+    // literals[i] is followed by placeholders[i]; the last literal has no placeholder after it
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+    private final String source;
+
+    private ResponseTemplate(String source, String[] literals, Placeholder[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Parse a template
+     */
+    public static ResponseTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+
+        int literalStart = 0;
+        int brace = source.indexOf('{');
+        while (brace >= 0) {
+            Placeholder placeholder = placeholderAt(source, brace);
+            if (placeholder != null) {
+                literals.add(source.substring(literalStart, brace));
+                placeholders.add(placeholder);
+                literalStart = brace + placeholder.token.length();
+            }
+            brace = source.indexOf('{', placeholder != null ? literalStart : brace + 1);
+        }
+        literals.add(source.substring(literalStart));
+
+        return new ResponseTemplate(source, literals.toArray(new String[0]),
+                placeholders.toArray(new Placeholder[0]));
+    }
+
+    /**
+     * Append the rendered template; the clock is only read if the template contains {time}
+     */
+    public void render(StringBuilder out, String name, int turn) {
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            switch (placeholders[i]) {
+                case NAME:
+                    out.append(name);
+                    break;
+                case TIME:
+                    appendCurrentTime(out);
+                    break;
+                case TURN:
+                    out.append(turn);
+                    break;
+            }
+        }
+        out.append(literals[placeholders.length]);
+    }
+
+    /**
+     * Append the current wall-clock time as HH:mm:ss
+     */
+    public static void appendCurrentTime(StringBuilder out) {
+        TIME_FORMAT.formatTo(LocalTime.now(), out);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static Placeholder placeholderAt(String source, int index) {
+        for (Placeholder placeholder : PLACEHOLDERS) {
+            if (source.startsWith(placeholder.token, index)) {
+                return placeholder;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,365 @@
+package chatbot;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Nearest-neighbour search over hashed bag-of-ngrams vectors
+ *
+ * Each text is embedded as word unigrams, word bigrams and character trigrams hashed
+ * into a fixed number of dimensions (with a hash-derived sign, so collisions cancel
+ * rather than pile up) and normalized to unit length; cosine similarity is then a dot
+ * product. Vectors are stored quantized to 7-bit integers with one scale per row, all
+ * rows one after another in a byte[], so a top-k query is a single sequential sweep over
+ * a quarter of the memory float rows would take; it is split across the common
+ * ForkJoinPool when the index is large. Similarities are accurate to about 0.01
+ *
+ * The integer dot products run on the Vector API (VectorDotKernel, in the separate
+ * vector/ source tree) when the JVM is started with --add-modules jdk.incubator.vector,
+ * and on a scalar loop otherwise; -Dchatbot.semantic.simd=false forces the scalar loop
+ */
+public final class SemanticIndex {
+
+    static final int DEFAULT_DIMENSIONS = 128;
+    static final double DEFAULT_MIN_SIMILARITY = 0.45;
+
+    // Feature weights: whole words carry most of the meaning, trigrams absorb typos and inflections
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float BIGRAM_WEIGHT = 0.7f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    // Hash seeds that keep the three feature families apart
+    private static final int WORD_SEED = Hashing.FNV32_OFFSET;
+    private static final int BIGRAM_SEED = 0x2C1B3C6D;
+    private static final int TRIGRAM_SEED = 0x297A2D39;
+
+    // Indexes with at least this many floats are searched in parallel, in slices of at least this many rows
+    private static final long PARALLEL_THRESHOLD = 1 << 20;
+    private static final int MIN_SLICE_ROWS = 16_384;
+
+    // Largest quantized component; products of two stay small enough for 16-bit SIMD lanes
+    static final int LEVELS = 63;
+
+    static final DotKernel KERNEL = loadKernel();
+
+    private final int dimensions;
+    private final byte[] codes;
+    private final float[] scales;
+    private final int rows;
+
+    private SemanticIndex(int dimensions, byte[] codes, float[] scales, int rows) {
+        this.dimensions = dimensions;
+        this.codes = codes;
+        this.scales = scales;
+        this.rows = rows;
+    }
+
+    /**
+     * Dot product of a quantized row with a quantized query, both components in [-LEVELS, LEVELS]
+     */
+    interface DotKernel {
+        int dot(byte[] codes, int base, short[] query, int dimensions);
+    }
+
+    /**
+     * Plain loop with four independent sums; dimensions are a multiple of four
+     */
+    static final class ScalarDotKernel implements DotKernel {
+        @Override
+        public int dot(byte[] codes, int base, short[] query, int dimensions) {
+            int s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            for (int j = 0; j < dimensions; j += 4) {
+                s0 += codes[base + j] * query[j];
+                s1 += codes[base + j + 1] * query[j + 1];
+                s2 += codes[base + j + 2] * query[j + 2];
+                s3 += codes[base + j + 3] * query[j + 3];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+    }
+
+    /**
+     * The Vector API kernel if its module is present and usable, else the scalar loop
+     * Loaded reflectively, so the main sources compile and run without the incubator module
+     */
+    private static DotKernel loadKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("chatbot.semantic.simd", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return new ScalarDotKernel();
+        }
+        try {
+            return (DotKernel) Class.forName("chatbot.VectorDotKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            System.err.println("Vector API kernel unavailable, using scalar search: " + e);
+            return new ScalarDotKernel();
+        }
+    }
+
+    /**
+     * Dimensions from system property chatbot.semantic.dimensions (0 disables), rounded up
+     * to a multiple of four
+     */
+    public static int configuredDimensions() {
+        int dimensions = Integer.getInteger("chatbot.semantic.dimensions", DEFAULT_DIMENSIONS);
+        if (dimensions < 0) {
+            System.err.println("Invalid semantic dimensions " + dimensions + ", using " + DEFAULT_DIMENSIONS);
+            return DEFAULT_DIMENSIONS;
+        }
+        return (dimensions + 3) & ~3;
+    }
+
+    /**
+     * Cosine similarity a match needs, from system property chatbot.semantic.minSimilarity
+     */
+    public static double configuredMinSimilarity() {
+        String configured = System.getProperty("chatbot.semantic.minSimilarity");
+        if (configured == null) return DEFAULT_MIN_SIMILARITY;
+        try {
+            return Double.parseDouble(configured);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid semantic similarity '" + configured + "', using " + DEFAULT_MIN_SIMILARITY);
+            return DEFAULT_MIN_SIMILARITY;
+        }
+    }
+
+    /**
+     * Embed and quantize the first count texts in parallel; row i is the vector of texts[i]
+     */
+    public static SemanticIndex build(String[] texts, int count, int dimensions) {
+        if (dimensions <= 0 || dimensions % 4 != 0) {
+            throw new IllegalArgumentException("Dimensions must be a positive multiple of 4: " + dimensions);
+        }
+        if ((long) count * dimensions > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many vectors for one array: " + count + " x " + dimensions);
+        }
+        byte[] codes = new byte[count * dimensions];
+        float[] scales = new float[count];
+        ThreadLocal<float[]> vectors = ThreadLocal.withInitial(() -> new float[dimensions]);
+        IntStream.range(0, count).parallel().forEach(row -> {
+            float[] vector = vectors.get();
+            embed(texts[row], vector, 0, dimensions);
+            float scale = scaleOf(vector);
+            scales[row] = scale;
+            for (int d = 0; d < dimensions; d++) {
+                codes[row * dimensions + d] = (byte) quantize(vector[d], scale);
+            }
+        });
+        return new SemanticIndex(dimensions, codes, scales, count);
+    }
+
+    /**
+     * Unit vector of a text, written into out (length dimensions); false if the text has no words
+     */
+    public boolean embed(CharSequence text, float[] out) {
+        return embed(text, out, 0, dimensions);
+    }
+
+    /**
+     * The k rows most similar to the query vector, most similar first: entries receives
+     * their row numbers and similarities their cosine similarity; returns how many were found
+     * On equal similarity the later row ranks first
+     */
+    public int search(float[] query, int k, int[] entries, float[] similarities) {
+        if (k <= 0 || rows == 0) return 0;
+        float queryScale = scaleOf(query);
+        short[] quantized = new short[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            quantized[d] = (short) quantize(query[d], queryScale);
+        }
+
+        TopK top;
+        if ((long) rows * dimensions >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            int slice = Math.max(MIN_SLICE_ROWS, rows / (ForkJoinPool.getCommonPoolParallelism() * 4));
+            top = ForkJoinPool.commonPool().invoke(new SearchTask(quantized, k, 0, rows, slice));
+        } else {
+            top = scan(quantized, k, 0, rows);
+        }
+        System.arraycopy(top.entries, 0, entries, 0, top.count);
+        for (int i = 0; i < top.count; i++) {
+            similarities[i] = top.similarities[i] * queryScale;
+        }
+        return top.count;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Number of indexed vectors
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Bytes held by the quantized rows and their scales
+     */
+    public long getMemoryBytes() {
+        return codes.length + (long) scales.length * Float.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SemanticIndex{rows=%d, dimensions=%d, bytes=%d, kernel=%s}", rows, dimensions,
+                getMemoryBytes(), KERNEL.getClass().getSimpleName());
+    }
+
+    /**
+     * Best k rows of [from, to), by similarity to the query before its own scale is applied
+     */
+    private TopK scan(short[] query, int k, int from, int to) {
+        DotKernel kernel = KERNEL;
+        TopK top = new TopK(k);
+        for (int row = from; row < to; row++) {
+            top.offer(row, kernel.dot(codes, row * dimensions, query, dimensions) * scales[row]);
+        }
+        return top;
+    }
+
+    /**
+     * Quantization step of a vector: its largest component maps to LEVELS
+     */
+    private static float scaleOf(float[] vector) {
+        float max = 0;
+        for (float component : vector) {
+            max = Math.max(max, Math.abs(component));
+        }
+        return max / LEVELS;
+    }
+
+    private static int quantize(float component, float scale) {
+        return scale == 0 ? 0 : Math.round(component / scale);
+    }
+
+    /**
+     * Searches a range of rows, splitting it in halves until a slice is small enough to scan
+     */
+    private final class SearchTask extends RecursiveTask<TopK> {
+        private final short[] query;
+        private final int k;
+        private final int from;
+        private final int to;
+        private final int slice;
+
+        SearchTask(short[] query, int k, int from, int to, int slice) {
+            this.query = query;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= slice) {
+                return scan(query, k, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(query, k, from, middle, slice);
+            left.fork();
+            TopK right = new SearchTask(query, k, middle, to, slice).compute();
+            // Merge in row order so ties resolve exactly as in a sequential scan
+            TopK merged = left.join();
+            for (int i = right.count - 1; i >= 0; i--) {
+                merged.offer(right.entries[i], right.similarities[i]);
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * The k best (row, similarity) pairs seen so far, kept sorted by descending similarity
+     */
+    private static final class TopK {
+        final int[] entries;
+        final float[] similarities;
+        int count;
+
+        TopK(int k) {
+            entries = new int[k];
+            similarities = new float[k];
+        }
+
+        void offer(int entry, float similarity) {
+            int k = entries.length;
+            if (count == k && similarity < similarities[k - 1]) return;
+
+            // Insert ahead of equal similarities, so later rows win ties
+            int position = count < k ? count : k - 1;
+            while (position > 0 && similarities[position - 1] <= similarity) {
+                entries[position] = entries[position - 1];
+                similarities[position] = similarities[position - 1];
+                position--;
+            }
+            entries[position] = entry;
+            similarities[position] = similarity;
+            if (count < k) count++;
+        }
+    }
+
+    /**
+     * Hash the word unigrams, bigrams and character trigrams of a normalized text into
+     * out[offset, offset + dimensions) and scale the result to unit length
+     */
+    private static boolean embed(CharSequence text, float[] out, int offset, int dimensions) {
+        Arrays.fill(out, offset, offset + dimensions, 0f);
+        int length = text.length();
+        int previousWord = 0;
+        boolean hasPrevious = false;
+        int i = 0;
+        while (i < length) {
+            if (!Hashing.isWordChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            int wordHash = WORD_SEED;
+            while (i < length && Hashing.isWordChar(text.charAt(i))) {
+                wordHash = Hashing.fnv1a(wordHash, text.charAt(i));
+                i++;
+            }
+            add(out, offset, dimensions, wordHash, WORD_WEIGHT);
+            if (hasPrevious) {
+                add(out, offset, dimensions, Hashing.combine(previousWord, wordHash) ^ BIGRAM_SEED, BIGRAM_WEIGHT);
+            }
+            previousWord = wordHash;
+            hasPrevious = true;
+
+            // Trigrams of the word padded with boundary markers: "^ma", "mac", ..., "ne$"
+            int wordLength = i - start;
+            for (int t = 0; t < wordLength; t++) {
+                int trigram = TRIGRAM_SEED;
+                for (int q = t; q < t + 3; q++) {
+                    char c = q == 0 ? '^' : q == wordLength + 1 ? '$' : text.charAt(start + q - 1);
+                    trigram = Hashing.fnv1a(trigram, c);
+                }
+                add(out, offset, dimensions, trigram, TRIGRAM_WEIGHT);
+            }
+        }
+        if (!hasPrevious) return false;
+
+        double norm = 0;
+        for (int d = offset; d < offset + dimensions; d++) {
+            norm += out[d] * out[d];
+        }
+        if (norm == 0) return false;
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int d = offset; d < offset + dimensions; d++) {
+            out[d] *= scale;
+        }
+        return true;
+    }
+
+    /**
+     * Add a feature: the mixed hash picks the dimension, its lowest bit the sign
+     */
+    private static void add(float[] out, int offset, int dimensions, int hash, float weight) {
+        int mixed = Hashing.mix(hash);
+        int dimension = (int) (((mixed >>> 1) * (long) dimensions) >>> 31);
+        out[offset + dimension] += (mixed & 1) == 0 ? weight : -weight;
+    }
+
+}
@@ -0,0 +1,76 @@
+package chatbot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable sentiment scores for one message
+ * positive and negative are shares of the weighted sentiment mass (they sum to 1
+ * when any sentiment word was found); neutral is 1 - max(positive, negative)
+ */
+public final class SentimentScore {
+
+    // Score for messages without any sentiment words
+    public static final SentimentScore NEUTRAL = new SentimentScore(0.5, 0.5, 1.0);
+
+    private final double positive;
+    private final double negative;
+    private final double neutral;
+
+    public SentimentScore(double positive, double negative, double neutral) {
+        this.positive = positive;
+        this.negative = negative;
+        this.neutral = neutral;
+    }
+
+    /**
+     * Build a score from accumulated positive and negative weights
+     */
+    public static SentimentScore fromWeights(double positiveWeight, double negativeWeight) {
+        double total = positiveWeight + negativeWeight;
+        if (total <= 0) {
+            return NEUTRAL;
+        }
+        double positive = positiveWeight / total;
+        double negative = negativeWeight / total;
+        return new SentimentScore(positive, negative, 1.0 - Math.max(positive, negative));
+    }
+
+    public double getPositive() {
+        return positive;
+    }
+
+    public double getNegative() {
+        return negative;
+    }
+
+    public double getNeutral() {
+        return neutral;
+    }
+
+    /**
+     * Convert to the legacy map keyed by "positive", "negative" and "neutral"
+     */
+    public Map<String, Double> toMap() {
+        Map<String, Double> sentiment = new HashMap<>();
+        sentiment.put("positive", positive);
+        sentiment.put("negative", negative);
+        sentiment.put("neutral", neutral);
+        return sentiment;
+    }
+
+    /**
+     * Convert from the legacy map; missing keys are read as the neutral score
+     */
+    public static SentimentScore fromMap(Map<String, Double> sentiment) {
+        return new SentimentScore(
+                sentiment.getOrDefault("positive", NEUTRAL.positive),
+                sentiment.getOrDefault("negative", NEUTRAL.negative),
+                sentiment.getOrDefault("neutral", NEUTRAL.neutral));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{positive=%.2f, negative=%.2f, neutral=%.2f}", positive, negative, neutral);
+    }
+}
@@ -0,0 +1,176 @@
+package chatbot;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import chatbot.ChatbotEngine.Intent;
+import chatbot.ConversationHistory.Speaker;
+
+/**
+ * Mutable per-session conversation state
+ * Holds everything that differs between users; the NLP model, templates and
+ * knowledge base are shared through ChatbotModel
+ */
+public class SessionContext {
+
+    // Turns kept in memory per session; older turns are spilled to disk
+    static final int HISTORY_CAPACITY = 1000;
+
+    // Turns kept by throwaway batch contexts, which never read their history back
+    static final int BATCH_HISTORY_CAPACITY = 2;
+
+    private final String sessionId;
+    private final Random random;
+    private final ConversationHistory history;
+    private final TopicCounters topics;
+
+    // False for batch and replay contexts, whose traffic must not reach the learned-response store
+    private final boolean learning;
+
+    // Optional durable journal of every turn; attached once replay has restored earlier turns
+    private ConversationJournal journal;
+
+    // Context tracking for response generation
+    private Intent lastIntent = Intent.UNKNOWN;
+    private int conversationTurn = 0;
+
+    private volatile long lastAccessMillis;
+
+    // Set once by close(), under the session monitor; a closed session takes no more turns
+    private volatile boolean closed;
+
+    public SessionContext(String sessionId) {
+        this(sessionId, null);
+    }
+
+    /**
+     * Session whose topic counts also feed the given global counters
+     */
+    public SessionContext(String sessionId, TopicCounters globalTopics) {
+        this(sessionId, globalTopics, HISTORY_CAPACITY);
+    }
+
+    SessionContext(String sessionId, TopicCounters globalTopics, int historyCapacity) {
+        this(sessionId, globalTopics, historyCapacity, true);
+    }
+
+    SessionContext(String sessionId, TopicCounters globalTopics, int historyCapacity, boolean learning) {
+        this.sessionId = sessionId;
+        this.random = new Random();
+        this.history = new ConversationHistory(historyCapacity);
+        this.topics = new TopicCounters(globalTopics);
+        this.learning = learning;
+        this.lastAccessMillis = System.currentTimeMillis();
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Whether the engine learns response patterns from this session's turns
+     */
+    public boolean isLearning() {
+        return learning;
+    }
+
+    public ConversationHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Per-topic message counts of this session
+     */
+    public TopicCounters getTopics() {
+        return topics;
+    }
+
+    /**
+     * Journal of this session, or null if turns are only kept in memory
+     */
+    public ConversationJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Append every turn recorded from now on to the given journal
+     */
+    void setJournal(ConversationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Time of the last processed message
+     */
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    /**
+     * Add a turn to the history and queue it for the journal
+     */
+    void record(Speaker speaker, Intent intent, SentimentScore sentiment, String text) {
+        ConversationHistory.Turn turn = history.add(new ConversationHistory.Turn(
+                System.currentTimeMillis(), speaker, intent, sentiment, text));
+        if (journal != null) {
+            journal.append(turn);
+        }
+    }
+
+    /**
+     * Re-apply a journaled turn after a restart: history, topic counts and response context
+     * The turn counter advances once per user turn, and the last intent is the one the bot
+     * last answered, which approximates what generation tracked before the restart
+     */
+    void restore(ConversationHistory.Turn turn) {
+        history.add(turn);
+        if (turn.getSpeaker() == Speaker.USER) {
+            if (turn.getIntent() != null) {
+                topics.record(turn.getIntent());
+            }
+            conversationTurn++;
+        } else if (turn.getIntent() != null) {
+            lastIntent = turn.getIntent();
+        }
+    }
+
+    void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    Random getRandom() {
+        return random;
+    }
+
+    Intent getLastIntent() {
+        return lastIntent;
+    }
+
+    void setLastIntent(Intent lastIntent) {
+        this.lastIntent = lastIntent;
+    }
+
+    int getConversationTurn() {
+        return conversationTurn;
+    }
+
+    int nextTurn() {
+        return ++conversationTurn;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Release the session's resources (history spill file, journal)
+     * The future completes once the journal has been written out and closed
+     */
+    CompletableFuture<Void> close() {
+        closed = true;
+        history.close();
+        if (journal != null) {
+            return journal.close();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,250 @@
+package chatbot;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Serves many concurrent chat sessions from one shared engine and model
+ * Each session only owns a small SessionContext; sessions idle for longer than
+ * the timeout are evicted by a background sweeper
+ *
+ * With a journal directory, an evicted session (or one from before a restart) is
+ * resumed from its journal. Journals are deleted when their session is ended, or by
+ * the sweeper once unused for chatbot.journal.retentionHours (default a week)
+ */
+public class SessionManager implements AutoCloseable {
+
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final long DEFAULT_JOURNAL_RETENTION_HOURS = 7 * 24;
+
+    private final ChatbotEngine engine;
+    private final long idleTimeoutMillis;
+    private final long journalRetentionMillis;
+    private final Map<String, SessionContext> sessions = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<SessionContext>> opening = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    public SessionManager(ChatbotEngine engine) {
+        this(engine, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public SessionManager(ChatbotEngine engine, long idleTimeoutMillis) {
+        this.engine = engine;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.journalRetentionMillis = TimeUnit.HOURS.toMillis(
+                Long.getLong("chatbot.journal.retentionHours", DEFAULT_JOURNAL_RETENTION_HOURS));
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chatbot-session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long sweepInterval = Math.max(1000, idleTimeoutMillis / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdleSessions, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Process a message for a session, creating the session on first use
+     */
+    public String processInput(String sessionId, String text) {
+        return processInput(getOrCreateSession(sessionId), text);
+    }
+
+    /**
+     * Process a message for a session obtained from this manager
+     * If the session was evicted meanwhile, the message goes to its successor, which
+     * resumes from the journal
+     */
+    public String processInput(SessionContext session, String text) {
+        while (true) {
+            String response = engine.processIfOpen(session, text);
+            if (response != null) return response;
+            session = getOrCreateSession(session.getSessionId());
+        }
+    }
+
+    /**
+     * Process a message for a session and stream the response to the callback in chunks
+     */
+    public String processInput(SessionContext session, String text, Consumer<? super String> onChunk) {
+        String response = processInput(session, text);
+        ResponseChunker.forEachChunk(response, onChunk);
+        return response;
+    }
+
+    /**
+     * Start a new session and return its id
+     */
+    public String createSession() {
+        return openSession().getSessionId();
+    }
+
+    /**
+     * Start a new session under a fresh id
+     */
+    public SessionContext openSession() {
+        return getOrCreateSession(UUID.randomUUID().toString());
+    }
+
+    /**
+     * Live session for a server-issued id, or the session restored from its journal;
+     * null if the id was not issued here or the session is gone for good
+     */
+    public SessionContext resumeSession(String sessionId) {
+        if (!isIssuedSessionId(sessionId)) return null;
+        if (sessions.get(sessionId) == null && !engine.hasJournal(sessionId)) return null;
+        return getOrCreateSession(sessionId);
+    }
+
+    /**
+     * Whether the id has the form of the ids createSession() hands out
+     */
+    static boolean isIssuedSessionId(String sessionId) {
+        try {
+            return UUID.fromString(sessionId).toString().equals(sessionId);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Existing session, or null if it does not exist or was evicted
+     */
+    public SessionContext getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * Session for the id, created if missing
+     * The engine's default session id is reserved, since that session owns its journal file
+     */
+    public SessionContext getOrCreateSession(String sessionId) {
+        if (ChatbotEngine.DEFAULT_SESSION_ID.equals(sessionId)) {
+            throw new IllegalArgumentException("Reserved session id: " + sessionId);
+        }
+        while (true) {
+            SessionContext session = sessions.get(sessionId);
+            if (session == null) {
+                session = openOnce(sessionId);
+            }
+            if (!session.isClosed()) {
+                session.touch();
+                return session;
+            }
+            // Closed sessions are removed right after closing; help and retry
+            sessions.remove(sessionId, session);
+        }
+    }
+
+    /**
+     * Open (and replay) a session outside the map's bin locks, since that waits on disk
+     * Concurrent callers for the same id wait for the one opener instead of opening it twice
+     */
+    private SessionContext openOnce(String sessionId) {
+        CompletableFuture<SessionContext> opened = new CompletableFuture<>();
+        CompletableFuture<SessionContext> pending = opening.putIfAbsent(sessionId, opened);
+        if (pending != null) {
+            return pending.join();
+        }
+        try {
+            // Another opener may have finished between the caller's lookup and ours
+            SessionContext session = sessions.get(sessionId);
+            if (session == null) {
+                session = engine.newSession(sessionId);
+                sessions.put(sessionId, session);
+            }
+            opened.complete(session);
+            return session;
+        } catch (RuntimeException | Error e) {
+            opened.completeExceptionally(e);
+            throw e;
+        } finally {
+            opening.remove(sessionId, opened);
+        }
+    }
+
+    /**
+     * End a session for good: release its resources and delete its journal
+     * Returns false if there was neither a live session nor a journal for the id
+     */
+    public boolean endSession(String sessionId) {
+        SessionContext session = sessions.get(sessionId);
+        if (session == null) {
+            return isIssuedSessionId(sessionId) && engine.deleteJournal(sessionId);
+        }
+        boolean ended = closeSession(session, true);
+        sessions.remove(sessionId, session);
+        return ended;
+    }
+
+    /**
+     * Close a session under its monitor, so no message is processed in it after this
+     * It stays in the map until the caller removes it: anyone fetching it meanwhile sees it
+     * closed and retries. Returns false if it was closed already
+     */
+    private boolean closeSession(SessionContext session, boolean discardJournal) {
+        synchronized (session) {
+            if (session.isClosed()) return false;
+            engine.closeSession(session, discardJournal);
+            return true;
+        }
+    }
+
+    /**
+     * Number of live sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Non-blocking snapshot of topic counts across every session
+     */
+    public TopicCounters.Snapshot getGlobalTopicSnapshot() {
+        return engine.getGlobalTopicSnapshot();
+    }
+
+    /**
+     * Shared engine behind every session
+     */
+    public ChatbotEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Remove sessions that have been idle longer than the timeout, keeping their journals
+     * so they can be resumed, and delete journals unused for longer than the retention period
+     */
+    public void evictIdleSessions() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - idleTimeoutMillis;
+        for (Map.Entry<String, SessionContext> entry : sessions.entrySet()) {
+            SessionContext session = entry.getValue();
+            if (session.getLastAccessMillis() >= cutoff) continue;
+            synchronized (session) {
+                // A request may have touched the session since the check above
+                if (session.getLastAccessMillis() >= cutoff || !closeSession(session, false)) continue;
+            }
+            sessions.remove(entry.getKey(), session);
+        }
+        engine.pruneJournals(now - journalRetentionMillis, sessions::containsKey);
+    }
+
+    /**
+     * Close every session; their journals stay so the sessions resume after a restart
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        for (SessionContext session : sessions.values()) {
+            closeSession(session, false);
+            sessions.remove(session.getSessionId(), session);
+        }
+    }
+}
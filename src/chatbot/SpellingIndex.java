@@ -0,0 +1,514 @@
+package chatbot;
+
+import java.util.*;
+
+/**
+ * Typo-tolerant word lookup over a fixed vocabulary (symmetric delete, as in SymSpell)
+ *
+ * Every vocabulary word is indexed under each string obtained by deleting up to
+ * maxDistance of its characters. A misspelled word generates its own deletes and looks
+ * them up; any two words within edit distance k share a delete of at most k characters
+ * from each, so the candidates found are exactly the words that can be within range,
+ * and only those few are checked with a bounded Damerau-Levenshtein distance. A lookup
+ * costs a few dozen hash probes, independent of the vocabulary size
+ *
+ * Deletes are keyed by a 64-bit hash in an open-addressing table of primitive arrays, and
+ * a lookup builds its deletes in per-thread scratch buffers, so it allocates nothing
+ */
+public final class SpellingIndex {
+
+    static final int DEFAULT_MAX_DISTANCE = 2;
+
+    // Deletes grow combinatorially with the distance; beyond this the index is mostly noise
+    private static final int MAX_SUPPORTED_DISTANCE = 3;
+
+    // Longer words are neither indexed nor corrected
+    private static final int MAX_WORD_LENGTH = 32;
+
+    // Estimated bytes per String besides its characters
+    private static final int STRING_BYTES = 40;
+
+    private final int maxDistance;
+
+    // Vocabulary: word -> id while adding words, with the number of times each word was added
+    private Map<String, Integer> wordIds = new HashMap<>();
+    private String[] words = new String[16];
+    private int[] counts = new int[16];
+    private int wordCount;
+
+    // Delete hash -> word ids, as an open-addressing table over postings[start, start + length)
+    private long[] slotHashes;
+    private int[] slotStarts;
+    private int[] slotLengths;
+    private int[] postings;
+    private int deleteCount;
+    private long memoryBytes;
+
+    private boolean built = false;
+
+    // Per-thread buffers for the deletes, the distance rows and the candidates already checked
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public SpellingIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_SUPPORTED_DISTANCE) {
+            throw new IllegalArgumentException("Edit distance must be between 0 and " + MAX_SUPPORTED_DISTANCE);
+        }
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Maximum edit distance from system property chatbot.spelling.maxDistance (0 disables)
+     */
+    public static int configuredMaxDistance() {
+        int distance = Integer.getInteger("chatbot.spelling.maxDistance", DEFAULT_MAX_DISTANCE);
+        if (distance < 0 || distance > MAX_SUPPORTED_DISTANCE) {
+            System.err.println("Spelling distance " + distance + " out of range, using " + DEFAULT_MAX_DISTANCE);
+            return DEFAULT_MAX_DISTANCE;
+        }
+        return distance;
+    }
+
+    /**
+     * Add every word of a normalized phrase to the vocabulary
+     */
+    public void addWords(CharSequence phrase) {
+        if (built) {
+            throw new IllegalStateException("Cannot add words after build()");
+        }
+        int length = phrase.length();
+        int i = 0;
+        while (i < length) {
+            if (!Hashing.isWordChar(phrase.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && Hashing.isWordChar(phrase.charAt(i))) i++;
+            addWord(phrase.subSequence(start, i).toString());
+        }
+    }
+
+    private void addWord(String word) {
+        Integer id = wordIds.get(word);
+        if (id != null) {
+            counts[id]++;
+            return;
+        }
+        if (wordCount == words.length) {
+            words = Arrays.copyOf(words, wordCount * 2);
+            counts = Arrays.copyOf(counts, wordCount * 2);
+        }
+        wordIds.put(word, wordCount);
+        words[wordCount] = word;
+        counts[wordCount] = 1;
+        wordCount++;
+    }
+
+    /**
+     * Index the deletes of every vocabulary word
+     */
+    public SpellingIndex build() {
+        if (built) return this;
+        words = Arrays.copyOf(words, wordCount);
+        counts = Arrays.copyOf(counts, wordCount);
+        wordIds = null;
+
+        // Delete strings -> word ids; every word is also filed under itself (no deletes)
+        Map<String, int[]> deletes = new HashMap<>();
+        Set<String> wordDeletes = new HashSet<>();
+        for (int id = 0; id < wordCount; id++) {
+            String word = words[id];
+            if (word.length() > MAX_WORD_LENGTH) continue;
+            wordDeletes.clear();
+            wordDeletes.add(word);
+            if (isCorrectable(word)) {
+                collectDeletes(word, maxDistance, wordDeletes);
+            }
+            for (String delete : wordDeletes) {
+                int[] ids = deletes.get(delete);
+                if (ids == null) {
+                    deletes.put(delete, new int[]{id});
+                } else {
+                    int[] grown = Arrays.copyOf(ids, ids.length + 1);
+                    grown[ids.length] = id;
+                    deletes.put(delete, grown);
+                }
+            }
+        }
+
+        // Lay the postings out per hash slot: count, then place (deletes whose hashes collide share a slot)
+        int capacity = Integer.highestOneBit(Math.max(4, deletes.size() * 2 - 1)) << 1;
+        slotHashes = new long[capacity];
+        slotStarts = new int[capacity];
+        slotLengths = new int[capacity];
+        int postingCount = 0;
+        for (Map.Entry<String, int[]> entry : deletes.entrySet()) {
+            int slot = claimSlot(hash(entry.getKey()));
+            slotLengths[slot] += entry.getValue().length;
+            postingCount += entry.getValue().length;
+        }
+        int[] fill = new int[capacity];
+        for (int slot = 0, start = 0; slot < capacity; slot++) {
+            slotStarts[slot] = start;
+            fill[slot] = start;
+            start += slotLengths[slot];
+        }
+        postings = new int[postingCount];
+        for (Map.Entry<String, int[]> entry : deletes.entrySet()) {
+            int slot = findSlot(hash(entry.getKey()));
+            for (int id : entry.getValue()) {
+                postings[fill[slot]++] = id;
+            }
+        }
+
+        memoryBytes = (long) capacity * (Long.BYTES + 2 * Integer.BYTES) + (long) postingCount * Integer.BYTES
+                + (long) wordCount * Integer.BYTES;
+        for (String word : words) {
+            memoryBytes += STRING_BYTES + word.length();
+        }
+        built = true;
+        return this;
+    }
+
+    /**
+     * Closest vocabulary word to text[start, end), or null if the word is in the
+     * vocabulary already or nothing lies within its allowed edit distance
+     * Ties go to a word the input only dropped letters from, then to the word added most often
+     */
+    public String suggest(CharSequence text, int start, int end) {
+        checkBuilt();
+        int length = end - start;
+        int allowed = allowedDistance(length);
+        if (allowed == 0 || length > MAX_WORD_LENGTH) return null;
+
+        Scratch s = scratch.get();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(start + i);
+            // Numbers are never corrected: "2023" is not a typo of "2024"
+            if (c >= '0' && c <= '9') return null;
+            s.word[i] = c;
+        }
+        s.length = length;
+        s.allowed = allowed;
+        s.best = -1;
+        s.bestDistance = allowed + 1;
+        s.nextStamp();
+
+        if (containsWord(s)) return null;
+        visitDeletes(s, s.word, length, allowed, 0, 0);
+        return s.best >= 0 && s.bestDistance <= allowed ? words[s.best] : null;
+    }
+
+    /**
+     * Normalized text with every misspelled word replaced by its correction, or null if
+     * no word changed
+     */
+    public String correct(CharSequence text) {
+        StringBuilder corrected = null;
+        int copied = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!Hashing.isWordChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && Hashing.isWordChar(text.charAt(i))) i++;
+            String suggestion = suggest(text, start, i);
+            if (suggestion != null) {
+                if (corrected == null) corrected = new StringBuilder(length + 8);
+                corrected.append(text, copied, start).append(suggestion);
+                copied = i;
+            }
+        }
+        if (corrected == null) return null;
+        return corrected.append(text, copied, length).toString();
+    }
+
+    /**
+     * Like correct(CharSequence), but only tokens unknown to the dictionary are corrected,
+     * so stop words and lexicon words are never rewritten
+     */
+    public String correct(TokenBuffer tokens) {
+        StringBuilder corrected = null;
+        int copied = 0;
+        for (int t = 0; t < tokens.getTokenCount(); t++) {
+            if (tokens.getTokenId(t) != TokenDictionary.UNKNOWN_ID) continue;
+            int start = tokens.getTokenStart(t);
+            int end = tokens.getTokenEnd(t);
+            String suggestion = suggest(tokens, start, end);
+            if (suggestion != null) {
+                if (corrected == null) corrected = new StringBuilder(tokens.length() + 8);
+                corrected.append(tokens, copied, start).append(suggestion);
+                copied = end;
+            }
+        }
+        if (corrected == null) return null;
+        return corrected.append(tokens, copied, tokens.length()).toString();
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Number of distinct vocabulary words
+     */
+    public int size() {
+        return wordCount;
+    }
+
+    /**
+     * Number of indexed delete hashes
+     */
+    public int getDeleteCount() {
+        return deleteCount;
+    }
+
+    /**
+     * Bytes held by the delete table, plus an estimate for the vocabulary strings
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SpellingIndex{words=%d, deletes=%d, maxDistance=%d, bytes=%d}",
+                size(), getDeleteCount(), maxDistance, memoryBytes);
+    }
+
+    /**
+     * Edits tolerated for a word of the given length: none for very short words, where
+     * almost every neighbour is another real word, one up to seven letters ("weather" is two
+     * edits from "teacher"), then one per four
+     */
+    private int allowedDistance(int length) {
+        if (length <= 3) return 0;
+        int allowed = length <= 7 ? 1 : length / 4;
+        return Math.min(allowed, maxDistance);
+    }
+
+    /**
+     * Look up the delete in buffer[0, length), then every delete of up to remaining more
+     * characters. Positions are deleted in ascending order (from), so each combination of
+     * positions is generated once
+     */
+    private void visitDeletes(Scratch s, char[] buffer, int length, int remaining, int from, int depth) {
+        checkCandidates(s, buffer, length);
+        if (remaining == 0 || length <= 1) return;
+
+        char[] next = s.deletes[depth];
+        for (int i = from; i < length; i++) {
+            System.arraycopy(buffer, 0, next, 0, i);
+            System.arraycopy(buffer, i + 1, next, i, length - i - 1);
+            visitDeletes(s, next, length - 1, remaining - 1, i, depth + 1);
+        }
+    }
+
+    /**
+     * Check the words filed under one delete against the query word, keeping the best
+     */
+    private void checkCandidates(Scratch s, char[] delete, int length) {
+        int slot = findSlot(hash(delete, length));
+        if (slot < 0) return;
+        for (int p = slotStarts[slot], end = p + slotLengths[slot]; p < end; p++) {
+            int id = postings[p];
+            if (s.seen[id] == s.stamp) continue;
+            s.seen[id] = s.stamp;
+
+            String target = words[id];
+            if (Math.abs(target.length() - s.length) > s.allowed) continue;
+            // Limit one past the best so far, so an equal distance is exact and can break the tie
+            int distance = distance(s, target, Math.min(s.bestDistance + 1, s.allowed + 1));
+            if (distance < s.bestDistance || (distance == s.bestDistance && s.best >= 0 && prefer(s, id, s.best))) {
+                s.best = id;
+                s.bestDistance = distance;
+            }
+        }
+    }
+
+    /**
+     * Whether the query word is itself in the vocabulary
+     */
+    private boolean containsWord(Scratch s) {
+        int slot = findSlot(hash(s.word, s.length));
+        if (slot < 0) return false;
+        for (int p = slotStarts[slot], end = p + slotLengths[slot]; p < end; p++) {
+            String word = words[postings[p]];
+            if (word.length() == s.length && equals(s.word, word)) return true;
+        }
+        return false;
+    }
+
+    private static boolean equals(char[] chars, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (chars[i] != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether candidate should replace best at the same distance: omitted letters are the
+     * most common typo ("helo" is "hello" rather than "help"), then frequency decides
+     */
+    private boolean prefer(Scratch s, int candidate, int best) {
+        boolean candidateOmission = isSubsequence(s, words[candidate]);
+        boolean bestOmission = isSubsequence(s, words[best]);
+        if (candidateOmission != bestOmission) {
+            return candidateOmission;
+        }
+        return counts[candidate] > counts[best];
+    }
+
+    private static boolean isSubsequence(Scratch s, String target) {
+        int matched = 0;
+        for (int i = 0; i < target.length() && matched < s.length; i++) {
+            if (target.charAt(i) == s.word[matched]) matched++;
+        }
+        return matched == s.length;
+    }
+
+    /**
+     * Add every string reachable from the word by deleting up to distance characters
+     */
+    private static void collectDeletes(String word, int distance, Set<String> out) {
+        if (distance == 0 || word.length() <= 1) return;
+        for (int i = 0; i < word.length(); i++) {
+            String delete = word.substring(0, i) + word.substring(i + 1);
+            if (out.add(delete) && distance > 1) {
+                collectDeletes(delete, distance - 1, out);
+            }
+        }
+    }
+
+    /**
+     * Optimal string alignment distance (adjacent transpositions count as one edit) between
+     * the query word and b, or limit when it is at least limit
+     */
+    private static int distance(Scratch s, String b, int limit) {
+        char[] a = s.word;
+        int n = s.length;
+        int m = b.length();
+        if (Math.abs(n - m) >= limit) return limit;
+
+        int[] previous2 = s.rows[0];
+        int[] previous = s.rows[1];
+        int[] current = s.rows[2];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a[i - 1];
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a[i - 2] == cb) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            // Every later row is at least this row's minimum
+            if (rowMin >= limit) return limit;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], limit);
+    }
+
+    /**
+     * Slot of a hash, claiming an empty one if it is new
+     */
+    private int claimSlot(long hash) {
+        int mask = slotHashes.length - 1;
+        int slot = (int) hash & mask;
+        while (slotHashes[slot] != 0 && slotHashes[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        if (slotHashes[slot] == 0) {
+            slotHashes[slot] = hash;
+            deleteCount++;
+        }
+        return slot;
+    }
+
+    /**
+     * Slot of a hash, or -1 if no delete has it
+     */
+    private int findSlot(long hash) {
+        int mask = slotHashes.length - 1;
+        int slot = (int) hash & mask;
+        while (slotHashes[slot] != 0) {
+            if (slotHashes[slot] == hash) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static long hash(String text) {
+        long hash = Hashing.FNV64_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash = Hashing.fnv1a(hash, text.charAt(i));
+        }
+        return finish(hash);
+    }
+
+    private static long hash(char[] chars, int length) {
+        long hash = Hashing.FNV64_OFFSET;
+        for (int i = 0; i < length; i++) {
+            hash = Hashing.fnv1a(hash, chars[i]);
+        }
+        return finish(hash);
+    }
+
+    // 0 marks an empty slot, so it is remapped
+    private static long finish(long hash) {
+        hash = Hashing.mix(hash);
+        return hash == 0 ? 1 : hash;
+    }
+
+    // Numbers are never corrected: "2023" is not a typo of "2024"
+    private static boolean isCorrectable(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) >= '0' && word.charAt(i) <= '9') return false;
+        }
+        return true;
+    }
+
+    private void checkBuilt() {
+        if (!built) {
+            throw new IllegalStateException("SpellingIndex has not been built");
+        }
+    }
+
+    /**
+     * One thread's lookup state: the query word, a buffer per deletion depth, three
+     * distance rows, and stamps marking the words already checked for the current query
+     */
+    private final class Scratch {
+        final char[] word = new char[MAX_WORD_LENGTH];
+        final char[][] deletes = new char[maxDistance][MAX_WORD_LENGTH];
+        final int[][] rows = new int[3][MAX_WORD_LENGTH + 1];
+        final int[] seen = new int[wordCount];
+        int stamp;
+
+        int length;
+        int allowed;
+        int best;
+        int bestDistance;
+
+        void nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                stamp = 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package chatbot;
+
+/**
+ * Single-pass character-level normalizer and tokenizer
+ * Lowercases, drops unsupported punctuation, collapses whitespace and records
+ * token offsets in one loop, writing into a caller-supplied TokenBuffer
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Normalize text into the buffer
+     * Kept characters are a-z, 0-9, '?', '!', '.' and single spaces; tokens are
+     * runs of letters and digits, so trailing punctuation is not part of a token
+     */
+    public static void normalize(CharSequence input, TokenBuffer out) {
+        normalize(input, out, null);
+    }
+
+    /**
+     * Normalize text into the buffer and resolve each token to its dictionary id
+     * The token hash is accumulated in the same loop, so the lookup does not rescan the token
+     */
+    public static void normalize(CharSequence input, TokenBuffer out, TokenDictionary dictionary) {
+        int inputLength = input == null ? 0 : input.length();
+        out.reset(inputLength);
+
+        boolean pendingSpace = false;
+        boolean inToken = false;
+        int hash = 0;
+
+        for (int i = 0; i < inputLength; i++) {
+            char c = input.charAt(i);
+
+            // Lowercase with an ASCII fast path
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            } else if (c >= 0x80) {
+                c = Character.toLowerCase(c);
+            }
+
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (pendingSpace) {
+                    out.append(' ');
+                    pendingSpace = false;
+                }
+                if (!inToken) {
+                    out.startToken();
+                    inToken = true;
+                    hash = 0;
+                }
+                out.append(c);
+                hash = Hashing.stringHash(hash, c);
+            } else if (c == '?' || c == '!' || c == '.') {
+                if (inToken) {
+                    endToken(out, dictionary, hash);
+                    inToken = false;
+                }
+                if (pendingSpace) {
+                    out.append(' ');
+                    pendingSpace = false;
+                }
+                out.append(c);
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    endToken(out, dictionary, hash);
+                    inToken = false;
+                }
+                // Leading whitespace is trimmed; inner runs collapse to one space
+                pendingSpace = out.length() > 0;
+            }
+            // Any other character is dropped without breaking the current token
+        }
+
+        if (inToken) {
+            endToken(out, dictionary, hash);
+        }
+    }
+
+    private static void endToken(TokenBuffer out, TokenDictionary dictionary, int hash) {
+        int id = dictionary == null ? TokenDictionary.UNKNOWN_ID
+                : dictionary.lookup(out, out.currentTokenStart(), out.length(), hash);
+        out.endToken(id);
+    }
+}
@@ -0,0 +1,142 @@
+package chatbot;
+
+import java.util.Arrays;
+
+/**
+ * Reusable scratch space for normalized text and token offsets
+ * One buffer is meant to be reused across messages by a single thread, so the
+ * normalizer does not allocate once the arrays have grown to a typical size
+ */
+public final class TokenBuffer implements CharSequence {
+
+    private static final int INITIAL_CHARS = 256;
+    private static final int INITIAL_TOKENS = 32;
+
+    private char[] text = new char[INITIAL_CHARS];
+    private int length;
+
+    private int[] starts = new int[INITIAL_TOKENS];
+    private int[] ends = new int[INITIAL_TOKENS];
+    private int[] ids = new int[INITIAL_TOKENS];
+    private int tokenCount;
+
+    /**
+     * Reset the buffer for a new message of at most the given length
+     */
+    void reset(int capacity) {
+        if (text.length < capacity) {
+            text = new char[Math.max(capacity, text.length * 2)];
+        }
+        length = 0;
+        tokenCount = 0;
+    }
+
+    void append(char c) {
+        text[length++] = c;
+    }
+
+    void startToken() {
+        if (tokenCount == starts.length) {
+            starts = Arrays.copyOf(starts, tokenCount * 2);
+            ends = Arrays.copyOf(ends, tokenCount * 2);
+            ids = Arrays.copyOf(ids, tokenCount * 2);
+        }
+        starts[tokenCount] = length;
+    }
+
+    void endToken(int id) {
+        ends[tokenCount] = length;
+        ids[tokenCount++] = id;
+    }
+
+    int currentTokenStart() {
+        return starts[tokenCount];
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return text[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(text, start, end - start);
+    }
+
+    /**
+     * Number of tokens found by the last normalization
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Start offset of a token in the normalized text
+     */
+    public int getTokenStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * End offset (exclusive) of a token in the normalized text
+     */
+    public int getTokenEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Dictionary id of a token, or TokenDictionary.UNKNOWN_ID
+     */
+    public int getTokenId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Copy of the token start offsets
+     */
+    int[] copyTokenStarts() {
+        return Arrays.copyOf(starts, tokenCount);
+    }
+
+    /**
+     * Copy of the token end offsets
+     */
+    int[] copyTokenEnds() {
+        return Arrays.copyOf(ends, tokenCount);
+    }
+
+    /**
+     * Copy of the token dictionary ids
+     */
+    int[] copyTokenIds() {
+        return Arrays.copyOf(ids, tokenCount);
+    }
+
+    /**
+     * Check whether the normalized text equals the given string
+     */
+    public boolean contentEquals(String other) {
+        if (other.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (other.charAt(i) != text[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Normalized text as a String, reusing the original if nothing changed
+     */
+    String toString(String original) {
+        return original != null && contentEquals(original) ? original : toString();
+    }
+
+    @Override
+    public String toString() {
+        return new String(text, 0, length);
+    }
+}
@@ -0,0 +1,134 @@
+package chatbot;
+
+import java.util.Arrays;
+
+/**
+ * Vocabulary that maps words to dense int ids
+ * Words are stored in one shared char pool and found with open addressing, using
+ * a hash the normalizer computes while it scans each token (Hashing.stringHash), so
+ * resolving a token id needs no String allocation and no second pass over the characters
+ */
+public final class TokenDictionary {
+
+    public static final int UNKNOWN_ID = -1;
+
+    private static final int EMPTY = -1;
+
+    // Word storage: word id -> [offset, offset + length) in the pool
+    private char[] pool = new char[1024];
+    private int poolSize;
+    private int[] offsets = new int[256];
+    private int[] lengths = new int[256];
+    private int[] hashes = new int[256];
+    private int size;
+
+    // Open-addressing table of word ids
+    private int[] table = newTable(512);
+
+    /**
+     * Add a word if missing and return its id
+     * Not thread-safe; the dictionary is filled once during setup and only read afterwards
+     */
+    public int intern(String word) {
+        int h = 0;
+        for (int i = 0; i < word.length(); i++) {
+            h = Hashing.stringHash(h, word.charAt(i));
+        }
+
+        int id = lookup(word, 0, word.length(), h);
+        if (id != UNKNOWN_ID) return id;
+
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        if (poolSize + word.length() > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + word.length()));
+        }
+
+        id = size++;
+        word.getChars(0, word.length(), pool, poolSize);
+        offsets[id] = poolSize;
+        lengths[id] = word.length();
+        hashes[id] = h;
+        poolSize += word.length();
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(id);
+        }
+        return id;
+    }
+
+    /**
+     * Id of the word in text[start, end) with a precomputed hash, or UNKNOWN_ID
+     */
+    public int lookup(CharSequence text, int start, int end, int hash) {
+        int mask = table.length - 1;
+        int length = end - start;
+        for (int slot = Hashing.mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot];
+            if (id == EMPTY) return UNKNOWN_ID;
+            if (hashes[id] == hash && lengths[id] == length && regionEquals(id, text, start)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Id of a word, or UNKNOWN_ID
+     */
+    public int lookup(String word) {
+        int h = 0;
+        for (int i = 0; i < word.length(); i++) {
+            h = Hashing.stringHash(h, word.charAt(i));
+        }
+        return lookup(word, 0, word.length(), h);
+    }
+
+    /**
+     * Word for an id
+     */
+    public String word(int id) {
+        return new String(pool, offsets[id], lengths[id]);
+    }
+
+    /**
+     * Number of words in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean regionEquals(int id, CharSequence text, int start) {
+        int offset = offsets[id];
+        for (int i = 0; i < lengths[id]; i++) {
+            if (pool[offset + i] != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private void insert(int id) {
+        int mask = table.length - 1;
+        int slot = Hashing.mix(hashes[id]) & mask;
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id;
+    }
+
+    private void rehash(int capacity) {
+        table = newTable(capacity);
+        for (int id = 0; id < size; id++) {
+            insert(id);
+        }
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] t = new int[capacity];
+        Arrays.fill(t, EMPTY);
+        return t;
+    }
+}
@@ -0,0 +1,116 @@
+package chatbot;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import chatbot.ChatbotEngine.Intent;
+
+/**
+ * Per-intent message counters backed by striped LongAdders
+ * Recording never locks or allocates; counters can be chained so a session's
+ * counters also feed a global aggregate
+ */
+public class TopicCounters {
+
+    private static final Intent[] INTENTS = Intent.values();
+
+    private final LongAdder[] counts = new LongAdder[INTENTS.length];
+    private final TopicCounters parent;
+
+    public TopicCounters() {
+        this(null);
+    }
+
+    /**
+     * Counters that also record into the given parent (e.g. global analytics)
+     */
+    public TopicCounters(TopicCounters parent) {
+        this.parent = parent;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Count one message for the intent
+     */
+    public void record(Intent intent) {
+        counts[intent.ordinal()].increment();
+        if (parent != null) {
+            parent.record(intent);
+        }
+    }
+
+    /**
+     * Read all counters without blocking writers
+     * The snapshot is weakly consistent: counters are read one after another while
+     * messages may still be recorded, so it need not match any single instant.
+     * Each count is monotonic (never lower than in an earlier snapshot) and the
+     * total is the sum of the counts as read
+     */
+    public Snapshot snapshot() {
+        long[] values = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            values[i] = counts[i].sum();
+        }
+        return new Snapshot(values);
+    }
+
+    /**
+     * Immutable, weakly consistent view of topic counts (see {@link #snapshot()})
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            this.total = sum;
+        }
+
+        public long get(Intent intent) {
+            return counts[intent.ordinal()];
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Number of topics tracked (one per intent)
+         */
+        public int getTopicCount() {
+            return counts.length;
+        }
+
+        /**
+         * Intents ordered by count, most discussed first
+         */
+        public List<Intent> byFrequency() {
+            List<Intent> intents = new ArrayList<>(Arrays.asList(INTENTS));
+            intents.sort((a, b) -> Long.compare(counts[b.ordinal()], counts[a.ordinal()]));
+            return intents;
+        }
+
+        /**
+         * Most discussed intent, or null if nothing has been counted
+         */
+        public Intent mostDiscussed() {
+            return total == 0 ? null : byFrequency().get(0);
+        }
+
+        /**
+         * Legacy map form keyed by intent name
+         */
+        public Map<String, Integer> toMap() {
+            Map<String, Integer> map = new HashMap<>();
+            for (Intent intent : INTENTS) {
+                map.put(intent.toString(), (int) Math.min(Integer.MAX_VALUE, counts[intent.ordinal()]));
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package chatbot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import chatbot.ChatbotEngine.Intent;
+import chatbot.ConversationHistory.Speaker;
+import chatbot.ConversationHistory.Turn;
+
+/**
+ * Compact binary encoding of conversation turns
+ *
+ * Record: timestamp (varint millis), flags (byte: bit 7 speaker, bit 6 sentiment present,
+ * bits 0-5 intent ordinal + 1 or 0 for none), sentiment as three unsigned 16-bit fractions
+ * when present, text length (varint) and UTF-8 text
+ *
+ * Journal files start with FILE_MAGIC and hold segments of records; each segment is
+ * preceded by a header of payload length, record count and CRC32C of the payload
+ */
+final class TurnCodec {
+
+    // "CBJ1"
+    static final int FILE_MAGIC = 0x43424A31;
+    static final int FILE_HEADER_BYTES = Integer.BYTES;
+    static final int SEGMENT_HEADER_BYTES = 3 * Integer.BYTES;
+
+    private static final int SPEAKER_BIT = 0x80;
+    private static final int SENTIMENT_BIT = 0x40;
+    private static final int INTENT_MASK = 0x3F;
+    private static final double SENTIMENT_SCALE = 65535.0;
+
+    private static final Speaker[] SPEAKERS = Speaker.values();
+    private static final Intent[] INTENTS = Intent.values();
+
+    private TurnCodec() {
+    }
+
+    /**
+     * Upper bound of the encoded size of a turn whose text has the given UTF-8 length
+     */
+    static int maxEncodedSize(int textBytes) {
+        return 10 + 1 + 6 + 5 + textBytes;
+    }
+
+    /**
+     * Encode a turn; returns false (leaving the buffer unchanged) if it does not fit
+     */
+    static boolean encode(Turn turn, byte[] text, ByteBuffer out) {
+        if (out.remaining() < maxEncodedSize(text.length)) return false;
+
+        putVarLong(out, turn.getTimestamp());
+        SentimentScore sentiment = turn.getSentiment();
+        int flags = (turn.getSpeaker() == Speaker.BOT ? SPEAKER_BIT : 0)
+                | (sentiment != null ? SENTIMENT_BIT : 0)
+                | (turn.getIntent() == null ? 0 : turn.getIntent().ordinal() + 1);
+        out.put((byte) flags);
+        if (sentiment != null) {
+            out.putShort(toFraction(sentiment.getPositive()));
+            out.putShort(toFraction(sentiment.getNegative()));
+            out.putShort(toFraction(sentiment.getNeutral()));
+        }
+        putVarLong(out, text.length);
+        out.put(text);
+        return true;
+    }
+
+    static boolean encode(Turn turn, ByteBuffer out) {
+        return encode(turn, turn.getText().getBytes(StandardCharsets.UTF_8), out);
+    }
+
+    /**
+     * Decode the next turn from the buffer
+     * Throws IllegalArgumentException or BufferUnderflowException on malformed input
+     */
+    static Turn decode(ByteBuffer in) {
+        long timestamp = getVarLong(in);
+        int flags = in.get() & 0xFF;
+        Speaker speaker = SPEAKERS[(flags & SPEAKER_BIT) != 0 ? 1 : 0];
+        int intent = flags & INTENT_MASK;
+        if (intent > INTENTS.length) {
+            throw new IllegalArgumentException("Invalid intent " + (intent - 1));
+        }
+
+        SentimentScore sentiment = null;
+        if ((flags & SENTIMENT_BIT) != 0) {
+            sentiment = new SentimentScore(fromFraction(in.getShort()), fromFraction(in.getShort()),
+                    fromFraction(in.getShort()));
+        }
+
+        long length = getVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid text length " + length);
+        }
+        String text;
+        if (in.hasArray()) {
+            text = new String(in.array(), in.arrayOffset() + in.position(), (int) length, StandardCharsets.UTF_8);
+            in.position(in.position() + (int) length);
+        } else {
+            byte[] bytes = new byte[(int) length];
+            in.get(bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new Turn(timestamp, speaker, intent == 0 ? null : INTENTS[intent - 1], sentiment, text);
+    }
+
+    private static short toFraction(double value) {
+        return (short) Math.round(Math.max(0.0, Math.min(1.0, value)) * SENTIMENT_SCALE);
+    }
+
+    private static double fromFraction(short value) {
+        return (value & 0xFFFF) / SENTIMENT_SCALE;
+    }
+
+    private static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
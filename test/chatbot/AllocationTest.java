@@ -0,0 +1,99 @@
+package chatbot;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import chatbot.ChatbotEngine.Intent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Allocation regression checks for the per-message NLP hot path
+ * Bytes are read from the current thread's allocation counter around a warmed loop, so
+ * the JIT has had the chance to scalar-replace short-lived objects
+ */
+class AllocationTest {
+
+    private static final String[] MESSAGES = {
+            "Hello there, how are you today?",
+            "I'm really worried about my homework!!",
+            "Can you explain machine learning to me?",
+            "The weather is not very good at all...",
+    };
+
+    private static final List<IntentClassifier.Example> TRAINING = List.of(
+            new IntentClassifier.Example(Intent.GREETING, "hello there"),
+            new IntentClassifier.Example(Intent.GREETING, "hi how are you"),
+            new IntentClassifier.Example(Intent.EDUCATION, "help me with my homework"),
+            new IntentClassifier.Example(Intent.TECHNOLOGY, "explain machine learning"),
+            new IntentClassifier.Example(Intent.WEATHER, "is the weather good today"),
+            new IntentClassifier.Example(Intent.PERSONAL, "i am really worried"));
+
+    private static final int WARMUP_CALLS = 200_000;
+    private static final int MEASURED_CALLS = 100_000;
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static NLPProcessor nlp;
+
+    @BeforeAll
+    static void setUp() {
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        nlp = new NLPProcessor();
+    }
+
+    @Test
+    void normalizeIntoReusedBufferDoesNotAllocate() {
+        TokenBuffer buffer = new TokenBuffer();
+        double perCall = bytesPerCall(i -> {
+            TextNormalizer.normalize(MESSAGES[i & 3], buffer, nlp.getDictionary());
+            return buffer.getTokenCount();
+        });
+        assertTrue(perCall < 8, "normalize allocated " + perCall + " bytes per call");
+    }
+
+    @Test
+    void classifyIntentDoesNotAllocate() {
+        double perCall = bytesPerCall(i -> nlp.classifyIntent(MESSAGES[i & 3]).ordinal());
+        assertTrue(perCall < 8, "classifyIntent allocated " + perCall + " bytes per call");
+    }
+
+    @Test
+    void classifyIntentWithModelDoesNotAllocate() {
+        for (NLPProcessor.ClassifierMode mode : NLPProcessor.ClassifierMode.values()) {
+            NLPProcessor withModel = new NLPProcessor();
+            IntentClassifier model = IntentClassifier.train(TRAINING, withModel.getDictionary(),
+                    IntentClassifier.DEFAULT_BUCKETS, IntentClassifier.DEFAULT_ALPHA);
+            // No confidence threshold, so every prediction is used
+            withModel.setIntentClassifier(model, mode, 0);
+            double perCall = bytesPerCall(i -> withModel.classifyIntent(MESSAGES[i & 3]).ordinal());
+            assertTrue(perCall < 8, "classifyIntent in " + mode + " mode allocated " + perCall + " bytes per call");
+        }
+    }
+
+    @Test
+    void analyzeOnlyAllocatesItsResult() {
+        // The AnalyzedInput, its normalized text, token arrays and sentiment score
+        double perCall = bytesPerCall(i -> nlp.analyze(MESSAGES[i & 3]).getTokenCount());
+        assertTrue(perCall < 512, "analyze allocated " + perCall + " bytes per call");
+    }
+
+    private interface Call {
+        int run(int i);
+    }
+
+    private static double bytesPerCall(Call call) {
+        long threadId = Thread.currentThread().getId();
+        int sink = 0;
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sink += call.run(i);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            sink += call.run(i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(sink != Integer.MIN_VALUE);
+        return allocated / (double) MEASURED_CALLS;
+    }
+}
@@ -0,0 +1,37 @@
+package chatbot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Batch and replay runs leave the shared learned-response store alone
+ */
+class BatchProcessingTest {
+
+    private final ChatbotEngine engine = new ChatbotEngine();
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void batchesAndReplaysLearnNothing() {
+        List<String> messages = List.of("tell me about java", "what is machine learning", "how do I learn python");
+        engine.processBatch(messages);
+        try (Stream<String> responses = engine.processStream(messages.stream())) {
+            responses.collect(Collectors.toList());
+        }
+        engine.processConversations(Map.of("replay", messages));
+        assertEquals(0, engine.getLearnedResponses().size());
+
+        engine.processInput("tell me about java");
+        assertEquals(1, engine.getLearnedResponses().size());
+    }
+}
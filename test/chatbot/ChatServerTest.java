@@ -0,0 +1,60 @@
+package chatbot;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Chat endpoints answering 500 when the engine fails
+ */
+class ChatServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ChatServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        SessionManager failing = new SessionManager(new ChatbotEngine()) {
+            @Override
+            public String processInput(SessionContext session, String text) {
+                throw new IllegalStateException("engine failure");
+            }
+        };
+        server = new ChatServer(failing, new InetSocketAddress("localhost", 0));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void chatAnswers500WhenTheEngineFails() throws Exception {
+        HttpResponse<String> response = post("/chat");
+        assertEquals(500, response.statusCode());
+        assertEquals("{\"error\":\"Internal error\"}", response.body());
+    }
+
+    @Test
+    void chatStreamAnswers500WhenTheEngineFails() throws Exception {
+        HttpResponse<String> response = post("/chat/stream");
+        assertEquals(500, response.statusCode());
+        assertEquals("{\"error\":\"Internal error\"}", response.body());
+    }
+
+    private HttpResponse<String> post(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"hello\"}"))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
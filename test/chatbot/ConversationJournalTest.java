@@ -0,0 +1,232 @@
+package chatbot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import chatbot.ChatbotEngine.Intent;
+import chatbot.ConversationHistory.Speaker;
+import chatbot.ConversationHistory.Turn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round trips through the turn encoding and the journal file
+ */
+class ConversationJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private JournalWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new JournalWriter(JournalWriter.FsyncPolicy.NEVER, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+    }
+
+    @Test
+    void codecRoundTripsEveryField() {
+        Turn user = new Turn(1_700_000_000_123L, Speaker.USER, Intent.EDUCATION,
+                new SentimentScore(0.25, 0.5, 0.75), "Können Sie mir helfen? 😀");
+        Turn bot = new Turn(0, Speaker.BOT, null, "");
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        TurnCodec.encode(user, buffer);
+        TurnCodec.encode(bot, buffer);
+        buffer.flip();
+
+        assertTurn(user, TurnCodec.decode(buffer));
+        Turn decoded = TurnCodec.decode(buffer);
+        assertTurn(bot, decoded);
+        assertNull(decoded.getIntent());
+        assertNull(decoded.getSentiment());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void codecRefusesTurnsThatDoNotFit() {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        assertFalse(TurnCodec.encode(new Turn(1, Speaker.USER, null, "too long for eight bytes"), buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void codecRejectsTruncatedRecords() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        TurnCodec.encode(new Turn(42, Speaker.USER, Intent.GREETING, "hello"), buffer);
+        buffer.flip().limit(buffer.limit() - 2);
+        assertThrows(IllegalArgumentException.class, () -> TurnCodec.decode(buffer));
+    }
+
+    @Test
+    void reopenedJournalReplaysTurnsInOrder() throws Exception {
+        Path file = directory.resolve("session.journal");
+        List<Turn> written = sampleTurns(500);
+
+        ConversationJournal journal = writer.open(file);
+        for (Turn turn : written) {
+            journal.append(turn);
+        }
+        journal.close().get();
+
+        List<Turn> replayed = new ArrayList<>();
+        ConversationJournal reopened = writer.open(file, replayed::add);
+        assertEquals(Files.size(file), reopened.size());
+        reopened.close().get();
+
+        assertTurns(written, replayed);
+    }
+
+    @Test
+    void tornTailIsCutOffAndLaterSegmentsReplay() throws Exception {
+        Path file = directory.resolve("torn.journal");
+        List<Turn> first = sampleTurns(20);
+
+        ConversationJournal journal = writer.open(file);
+        for (Turn turn : first) {
+            journal.append(turn);
+        }
+        journal.close().get();
+        long intact = Files.size(file);
+
+        // A crash in the middle of a segment: header promises more bytes than follow
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(TurnCodec.SEGMENT_HEADER_BYTES + 3).putInt(0, 100).putInt(4, 1));
+        }
+
+        List<Turn> replayed = new ArrayList<>();
+        journal = writer.open(file, replayed::add);
+        assertEquals(intact, Files.size(file));
+        assertTurns(first, replayed);
+
+        Turn later = new Turn(99, Speaker.BOT, Intent.HELP, "after the crash");
+        journal.append(later);
+        journal.close().get();
+
+        replayed.clear();
+        writer.open(file, replayed::add).close().get();
+        List<Turn> expected = new ArrayList<>(first);
+        expected.add(later);
+        assertTurns(expected, replayed);
+    }
+
+    @Test
+    void forEachTurnReadsBetweenSegmentOffsets() throws Exception {
+        Path file = directory.resolve("range.journal");
+        ConversationJournal journal = writer.open(file);
+        journal.append(new Turn(1, Speaker.USER, null, "first"));
+        journal.sync().get();
+        long middle = journal.size();
+        journal.append(new Turn(2, Speaker.BOT, null, "second"));
+        journal.sync().get();
+
+        List<Turn> tail = new ArrayList<>();
+        journal.forEachTurn(middle, journal.size(), tail::add);
+        journal.close().get();
+
+        assertEquals(1, tail.size());
+        assertEquals("second", tail.get(0).getText());
+    }
+
+    @Test
+    void exportsAppendToTheLastTargetAndRewriteOthers() throws Exception {
+        ConversationJournal journal = writer.open(directory.resolve("export.journal"));
+        Path first = directory.resolve("first.txt");
+        Path second = directory.resolve("second.txt");
+        journal.append(new Turn(1, Speaker.USER, null, "hello"));
+        journal.sync().get();
+        journal.exportText(first, "head\n", "tail\n");
+        journal.exportText(second, "head\n", "tail\n");
+
+        journal.append(new Turn(2, Speaker.BOT, null, "hi"));
+        journal.sync().get();
+        journal.exportText(second, "ignored\n", "end\n");
+        // Only the last target is remembered, so the first is written from scratch
+        journal.exportText(first, "new head\n", "end\n");
+        journal.close().get();
+
+        String turns = new Turn(1, Speaker.USER, null, "hello") + System.lineSeparator()
+                + new Turn(2, Speaker.BOT, null, "hi") + System.lineSeparator();
+        assertEquals("head\n" + turns + "end\n", Files.readString(second));
+        assertEquals("new head\n" + turns + "end\n", Files.readString(first));
+    }
+
+    @Test
+    void barriersRacingCloseAllComplete() throws Exception {
+        ConversationJournal journal = writer.open(directory.resolve("race.journal"));
+        List<CompletableFuture<Void>> barriers = new CopyOnWriteArrayList<>();
+        Thread syncer = new Thread(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                barriers.add(journal.sync());
+            }
+        });
+        syncer.start();
+        writer.close();
+        syncer.join();
+
+        // Each barrier is either written before the writer stopped or refused; none is left pending
+        for (CompletableFuture<Void> barrier : barriers) {
+            try {
+                barrier.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        }
+        assertThrows(IllegalStateException.class, () -> journal.append(sampleTurns(1).get(0)));
+    }
+
+    private static List<Turn> sampleTurns(int count) {
+        Intent[] intents = Intent.values();
+        List<Turn> turns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Speaker speaker = i % 2 == 0 ? Speaker.USER : Speaker.BOT;
+            SentimentScore sentiment = speaker == Speaker.USER ? SentimentScore.fromWeights(i % 3, i % 5) : null;
+            turns.add(new Turn(1_000L * i, speaker, intents[i % intents.length], sentiment, "message " + i));
+        }
+        return turns;
+    }
+
+    private static void assertTurns(List<Turn> expected, List<Turn> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTurn(expected.get(i), actual.get(i));
+        }
+    }
+
+    // Sentiment is stored as 16-bit fractions
+    private static void assertTurn(Turn expected, Turn actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getSpeaker(), actual.getSpeaker());
+        assertEquals(expected.getIntent(), actual.getIntent());
+        assertEquals(expected.getText(), actual.getText());
+        if (expected.getSentiment() == null) {
+            assertNull(actual.getSentiment());
+        } else {
+            assertEquals(expected.getSentiment().getPositive(), actual.getSentiment().getPositive(), 1e-4);
+            assertEquals(expected.getSentiment().getNegative(), actual.getSentiment().getNegative(), 1e-4);
+            assertEquals(expected.getSentiment().getNeutral(), actual.getSentiment().getNeutral(), 1e-4);
+        }
+    }
+}
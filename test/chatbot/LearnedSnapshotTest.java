@@ -0,0 +1,125 @@
+package chatbot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Write/find round trips through the memory-mapped learned-pattern snapshot
+ */
+class LearnedSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyWrittenRecordIsFoundByKey() throws IOException {
+        List<LearnedSnapshot.Record> records = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            records.add(record("pattern " + i, "response " + i, i / 10.0, 1_000L + i));
+        }
+        // Keys above 0x7F only sort correctly as unsigned bytes
+        records.add(record("café au lait", "coffee", 3.5, 7));
+        records.add(record("ünicode", "umlaut", 1.0, 8));
+        records.add(record("", "empty key", 0.5, 9));
+        records.sort((a, b) -> Arrays.compareUnsigned(a.key, b.key));
+
+        Path file = directory.resolve("learned.snapshot");
+        assertEquals(records.size(), LearnedSnapshot.write(file, records.iterator()));
+
+        LearnedSnapshot snapshot = LearnedSnapshot.open(file);
+        assertEquals(records.size(), snapshot.size());
+        for (int i = 0; i < records.size(); i++) {
+            LearnedSnapshot.Record expected = records.get(i);
+            LearnedSnapshot.Record found = snapshot.find(expected.key);
+            assertNotNull(found, new String(expected.key, StandardCharsets.UTF_8));
+            assertRecord(expected, found);
+            assertRecord(expected, snapshot.get(i));
+        }
+    }
+
+    @Test
+    void missingKeysAreNotFound() throws IOException {
+        Path file = directory.resolve("learned.snapshot");
+        LearnedSnapshot.write(file, List.of(record("alpha", "a", 1, 1), record("gamma", "g", 1, 1)).iterator());
+
+        LearnedSnapshot snapshot = LearnedSnapshot.open(file);
+        assertNull(snapshot.find(key("beta")));
+        assertNull(snapshot.find(key("alph")));
+        assertNull(snapshot.find(key("alphabet")));
+        assertNull(snapshot.find(key("zeta")));
+        assertNull(snapshot.find(key("")));
+    }
+
+    @Test
+    void emptySnapshotRoundTrips() throws IOException {
+        Path file = directory.resolve("empty.snapshot");
+        assertEquals(0, LearnedSnapshot.write(file, Collections.emptyIterator()));
+
+        LearnedSnapshot snapshot = LearnedSnapshot.open(file);
+        assertEquals(0, snapshot.size());
+        assertNull(snapshot.find(key("anything")));
+    }
+
+    @Test
+    void rewritingReplacesThePreviousSnapshot() throws IOException {
+        Path file = directory.resolve("learned.snapshot");
+        LearnedSnapshot.write(file, List.of(record("hello", "old answer with a long text", 1, 1),
+                record("world", "w", 1, 1)).iterator());
+        LearnedSnapshot.write(file, List.of(record("hello", "new", 2, 2)).iterator());
+
+        LearnedSnapshot snapshot = LearnedSnapshot.open(file);
+        assertEquals(1, snapshot.size());
+        assertEquals("new", snapshot.find(key("hello")).response);
+        assertNull(snapshot.find(key("world")));
+    }
+
+    @Test
+    void filesThatAreNotSnapshotsAreRejected() throws IOException {
+        Path garbage = directory.resolve("garbage.snapshot");
+        Files.write(garbage, "definitely not a snapshot file".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> LearnedSnapshot.open(garbage));
+
+        Path truncated = directory.resolve("truncated.snapshot");
+        LearnedSnapshot.write(truncated, List.of(record("alpha", "a", 1, 1)).iterator());
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> LearnedSnapshot.open(truncated));
+    }
+
+    private static LearnedSnapshot.Record record(String key, String response, double score, long updatedMillis) {
+        return new LearnedSnapshot.Record(key(key), response, score, updatedMillis);
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void mergingAClosedLogIsRejected() throws IOException {
+        LearnedResponseLog log = LearnedResponseLog.open(directory.resolve("learned"), 60_000, Integer.MAX_VALUE);
+        log.merge();
+        log.close();
+        assertThrows(IllegalStateException.class, log::merge);
+    }
+
+    private static void assertRecord(LearnedSnapshot.Record expected, LearnedSnapshot.Record actual) {
+        assertArrayEquals(expected.key, actual.key);
+        assertEquals(expected.response, actual.response);
+        assertEquals(expected.score, actual.score);
+        assertEquals(expected.updatedMillis, actual.updatedMillis);
+    }
+}
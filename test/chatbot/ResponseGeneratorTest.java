@@ -0,0 +1,44 @@
+package chatbot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Name detection in introductions
+ */
+class ResponseGeneratorTest {
+
+    private final ChatbotEngine engine = new ChatbotEngine();
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void namesFollowMyNameIsOrCallMe() {
+        assertEquals("Nice to meet you, Sam! I'm CodeBot, your AI assistant.", reply("my name is sam"));
+        assertEquals("Nice to meet you, Alex! I'm CodeBot, your AI assistant.", reply("Please call me alex"));
+    }
+
+    @Test
+    void iAmTakesOnlyACapitalizedLastWordAsAName() {
+        assertEquals("Nice to meet you, Sam! I'm CodeBot, your AI assistant.", reply("I'm Sam"));
+        assertEquals("Nice to meet you! I'm CodeBot, your AI assistant.", reply("i am tired"));
+        assertEquals("Nice to meet you! I'm CodeBot, your AI assistant.", reply("I am confused"));
+        assertFalse(reply("im going home").startsWith("Nice to meet you"));
+    }
+
+    @Test
+    void casingIsNotServedFromTheCache() {
+        assertEquals("Nice to meet you! I'm CodeBot, your AI assistant.", reply("i am sam"));
+        assertEquals("Nice to meet you, Sam! I'm CodeBot, your AI assistant.", reply("I am Sam"));
+    }
+
+    private String reply(String message) {
+        return engine.processInput(new SessionContext("test"), message);
+    }
+}
@@ -0,0 +1,101 @@
+package chatbot;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Quantized similarity search: the SIMD and scalar kernels agree, and ranking and
+ * similarities stay close to exact float cosine similarity
+ */
+class SemanticIndexTest {
+
+    private static final String[] TEXTS = {
+            "what is machine learning",
+            "tell me about java programming",
+            "how is the weather today",
+            "recommend a good movie",
+            "help me with my homework",
+            "what time is it",
+            "explain artificial intelligence",
+            "who are you",
+    };
+
+    @Test
+    void kernelMatchesScalarLoop() {
+        SemanticIndex.DotKernel scalar = new SemanticIndex.ScalarDotKernel();
+        Random random = new Random(3);
+        // Below, at and above one vector, and long enough to widen the 16-bit sums several times
+        for (int dimensions : new int[]{4, 12, 36, 64, 128, 260, 1024}) {
+            byte[] codes = new byte[3 * dimensions];
+            short[] query = new short[dimensions];
+            for (int trial = 0; trial < 50; trial++) {
+                boolean extreme = trial == 0;
+                for (int i = 0; i < codes.length; i++) {
+                    codes[i] = (byte) (extreme ? SemanticIndex.LEVELS : random.nextInt(2 * SemanticIndex.LEVELS + 1) - SemanticIndex.LEVELS);
+                }
+                for (int i = 0; i < dimensions; i++) {
+                    query[i] = (short) (extreme ? SemanticIndex.LEVELS : random.nextInt(2 * SemanticIndex.LEVELS + 1) - SemanticIndex.LEVELS);
+                }
+                for (int row = 0; row < 3; row++) {
+                    assertEquals(scalar.dot(codes, row * dimensions, query, dimensions),
+                            SemanticIndex.KERNEL.dot(codes, row * dimensions, query, dimensions),
+                            SemanticIndex.KERNEL.getClass().getSimpleName() + " at " + dimensions + " dimensions");
+                }
+            }
+        }
+    }
+
+    @Test
+    void everyTextFindsItselfFirst() {
+        SemanticIndex index = SemanticIndex.build(TEXTS, TEXTS.length, 128);
+        float[] query = new float[index.getDimensions()];
+        int[] entries = new int[3];
+        float[] similarities = new float[3];
+        for (int i = 0; i < TEXTS.length; i++) {
+            assertTrue(index.embed(TEXTS[i], query));
+            assertEquals(3, index.search(query, 3, entries, similarities));
+            assertEquals(i, entries[0], TEXTS[i]);
+            assertEquals(1.0, similarities[0], 0.02);
+            assertTrue(similarities[0] >= similarities[1] && similarities[1] >= similarities[2]);
+        }
+    }
+
+    @Test
+    void similaritiesStayCloseToExactCosine() {
+        SemanticIndex index = SemanticIndex.build(TEXTS, TEXTS.length, 128);
+        String[] queries = {"machine lerning basics", "java", "is it raining today", "a funny film", "hello there"};
+        float[] query = new float[index.getDimensions()];
+        float[] row = new float[index.getDimensions()];
+        int[] entries = new int[TEXTS.length];
+        float[] similarities = new float[TEXTS.length];
+        for (String text : queries) {
+            index.embed(text, query);
+            int found = index.search(query, TEXTS.length, entries, similarities);
+            assertEquals(TEXTS.length, found);
+            for (int i = 0; i < found; i++) {
+                index.embed(TEXTS[entries[i]], row);
+                float exact = 0;
+                for (int d = 0; d < row.length; d++) {
+                    exact += query[d] * row[d];
+                }
+                assertEquals(exact, similarities[i], 0.02, text + " vs " + TEXTS[entries[i]]);
+            }
+        }
+    }
+
+    @Test
+    void textsWithoutWordsMatchNothing() {
+        SemanticIndex index = SemanticIndex.build(new String[]{"hello world", "?!"}, 2, 64);
+        float[] query = new float[index.getDimensions()];
+        index.embed("hello world", query);
+        int[] entries = new int[2];
+        float[] similarities = new float[2];
+        assertEquals(2, index.search(query, 2, entries, similarities));
+        assertEquals(0, entries[0]);
+        assertEquals(0f, similarities[1]);
+        assertEquals(2L * 64 + 2 * Float.BYTES, index.getMemoryBytes());
+    }
+}
@@ -0,0 +1,202 @@
+package chatbot;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Server sessions resuming from their journals after a restart, and journal cleanup
+ */
+class SessionResumeTest {
+
+    @TempDir
+    Path journals;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private SessionManager sessionManager;
+    private ChatServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        System.setProperty("chatbot.journalDir", journals.toString());
+        startServer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        System.clearProperty("chatbot.journalDir");
+    }
+
+    @Test
+    void sessionIsReplayedAfterRestart() throws Exception {
+        String sessionId = chat(null, "tell me about java").headers().firstValue(ChatServer.SESSION_HEADER).orElseThrow();
+        chat(sessionId, "I'm really worried about my homework");
+        assertTrue(Files.exists(journal(sessionId)));
+
+        server.close();
+        startServer();
+
+        HttpResponse<String> resumed = chat(sessionId, "thanks, bye");
+        assertEquals(200, resumed.statusCode());
+        assertEquals(sessionId, resumed.headers().firstValue(ChatServer.SESSION_HEADER).orElseThrow());
+        SessionContext session = sessionManager.getSession(sessionId);
+        assertEquals(6, session.getHistory().size());
+        assertEquals("tell me about java", session.getHistory().page(0, 1).get(0).getText());
+        assertEquals(3, session.getTopics().snapshot().getTotal());
+    }
+
+    @Test
+    void idsThatWereNotIssuedGetAFreshSession() throws Exception {
+        for (String forged : new String[]{UUID.randomUUID().toString(), ChatbotEngine.DEFAULT_SESSION_ID, "mine"}) {
+            String issued = chat(forged, "hello").headers().firstValue(ChatServer.SESSION_HEADER).orElseThrow();
+            assertNotEquals(forged, issued);
+            assertTrue(SessionManager.isIssuedSessionId(issued));
+            if (!forged.equals(ChatbotEngine.DEFAULT_SESSION_ID)) {
+                assertFalse(Files.exists(journal(forged)));
+            }
+        }
+        // The engine's own session was not touched
+        assertEquals(0, sessionManager.getEngine().getHistory().size());
+    }
+
+    @Test
+    void endingASessionDeletesItsJournal() throws Exception {
+        String sessionId = chat(null, "hello").headers().firstValue(ChatServer.SESSION_HEADER).orElseThrow();
+        assertTrue(Files.exists(journal(sessionId)));
+
+        HttpResponse<String> ended = client.send(HttpRequest.newBuilder(uri("/session"))
+                .header(ChatServer.SESSION_HEADER, sessionId).DELETE().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(204, ended.statusCode());
+        awaitDeleted(journal(sessionId));
+
+        server.close();
+        startServer();
+        assertNotEquals(sessionId, chat(sessionId, "hello").headers().firstValue(ChatServer.SESSION_HEADER).orElseThrow());
+    }
+
+    @Test
+    void sweeperDeletesJournalsPastRetention() throws Exception {
+        String sessionId = chat(null, "hello").headers().firstValue(ChatServer.SESSION_HEADER).orElseThrow();
+        server.close();
+        startServer();
+
+        Files.setLastModifiedTime(journal(sessionId),
+                FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30)));
+        sessionManager.evictIdleSessions();
+        assertFalse(Files.exists(journal(sessionId)));
+    }
+
+    @Test
+    void evictionDuringRequestsLosesNoTurns() throws Exception {
+        ChatbotEngine engine = new ChatbotEngine();
+        SessionManager eager = new SessionManager(engine, 0);
+        String sessionId = eager.createSession();
+        int threads = 4;
+        int messagesPerThread = 200;
+
+        Thread evictor = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                eager.evictIdleSessions();
+            }
+        });
+        evictor.start();
+        Thread[] senders = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            senders[t] = new Thread(() -> {
+                for (int i = 0; i < messagesPerThread; i++) {
+                    eager.processInput(sessionId, "hello number " + i);
+                }
+            });
+            senders[t].start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        evictor.interrupt();
+        evictor.join();
+        eager.close();
+        engine.close();
+
+        SessionManager restarted = new SessionManager(new ChatbotEngine());
+        try {
+            SessionContext session = restarted.resumeSession(sessionId);
+            assertEquals(2L * threads * messagesPerThread, session.getHistory().size());
+        } finally {
+            restarted.close();
+            restarted.getEngine().close();
+        }
+    }
+
+    @Test
+    void concurrentResumesOpenTheSessionOnce() throws Exception {
+        String sessionId = chat(null, "hello").headers().firstValue(ChatServer.SESSION_HEADER).orElseThrow();
+        server.close();
+        startServer();
+
+        SessionContext[] resumed = new SessionContext[8];
+        Thread[] resumers = new Thread[resumed.length];
+        for (int t = 0; t < resumers.length; t++) {
+            int slot = t;
+            resumers[t] = new Thread(() -> resumed[slot] = sessionManager.resumeSession(sessionId));
+            resumers[t].start();
+        }
+        for (Thread resumer : resumers) {
+            resumer.join();
+        }
+        for (SessionContext session : resumed) {
+            assertSame(resumed[0], session);
+        }
+        assertEquals(2, resumed[0].getHistory().size());
+    }
+
+    private void startServer() throws IOException {
+        sessionManager = new SessionManager(new ChatbotEngine());
+        server = new ChatServer(sessionManager, new InetSocketAddress("localhost", 0));
+        server.start();
+    }
+
+    private HttpResponse<String> chat(String sessionId, String message) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri("/chat"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"message\":\"" + message + "\"}"));
+        if (sessionId != null) {
+            request.header(ChatServer.SESSION_HEADER, sessionId);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    private Path journal(String sessionId) {
+        return journals.resolve(sessionId + ".journal");
+    }
+
+    // The journal is deleted once the writer thread has closed it
+    private static void awaitDeleted(Path file) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.exists(file) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,174 @@
+package chatbot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Suggestions of the symmetric-delete spelling index, checked by hand and against brute force
+ */
+class SpellingIndexTest {
+
+    private static SpellingIndex index(int maxDistance, String... phrases) {
+        SpellingIndex index = new SpellingIndex(maxDistance);
+        for (String phrase : phrases) {
+            index.addWords(phrase);
+        }
+        return index.build();
+    }
+
+    private static String suggest(SpellingIndex index, String word) {
+        return index.suggest(word, 0, word.length());
+    }
+
+    @Test
+    void correctsSingleEditsOfMediumWords() {
+        SpellingIndex index = index(2, "machine learning", "hello help", "programming language");
+        assertEquals("machine", suggest(index, "machien"));
+        assertEquals("learning", suggest(index, "lerning"));
+        assertEquals("learning", suggest(index, "learnings"));
+        assertEquals("language", suggest(index, "langauge"));
+        assertEquals("hello", suggest(index, "hallo"));
+    }
+
+    @Test
+    void allowsTwoEditsOnlyForLongWords() {
+        SpellingIndex index = index(2, "artificial knowledge teacher");
+        assertEquals("artificial", suggest(index, "artficail"));
+        assertNull(suggest(index, "knowleg"));
+        // Seven letters get one edit, so a real word two edits away is left alone
+        assertNull(suggest(index, "weather"));
+    }
+
+    @Test
+    void leavesKnownShortAndNumericWordsAlone() {
+        SpellingIndex index = index(2, "hello world 2024");
+        assertNull(suggest(index, "hello"));
+        assertNull(suggest(index, "wrl"));
+        assertEquals("world", suggest(index, "wrld"));
+        assertNull(suggest(index, "2023"));
+        assertNull(suggest(index, "hell0"));
+    }
+
+    @Test
+    void nothingIsCorrectedAtDistanceZero() {
+        SpellingIndex index = index(0, "machine learning");
+        assertNull(suggest(index, "machien"));
+        assertNull(index.correct("machien lerning"));
+    }
+
+    @Test
+    void tiesPreferDroppedLettersThenFrequency() {
+        SpellingIndex index = index(2, "help help help hello");
+        assertEquals("hello", suggest(index, "helo"));
+
+        SpellingIndex frequent = index(2, "break bread bread");
+        assertEquals("bread", suggest(frequent, "breaz"));
+    }
+
+    @Test
+    void suggestsForASliceOfTheText() {
+        SpellingIndex index = index(2, "machine learning");
+        String text = "about machien lerning today";
+        assertEquals("machine", index.suggest(text, 6, 13));
+        assertEquals("learning", index.suggest(text, 14, 21));
+    }
+
+    @Test
+    void correctRewritesOnlyMisspelledWords() {
+        SpellingIndex index = index(2, "tell me about machine learning");
+        assertEquals("tell me about machine learning", index.correct("tell me about machin lerning"));
+        assertEquals("so machine learning?", index.correct("so machine lerning?"));
+        assertNull(index.correct("tell me about machine learning"));
+    }
+
+    @Test
+    void wordsCannotBeAddedAfterBuild() {
+        SpellingIndex index = index(2, "hello");
+        assertThrows(IllegalStateException.class, () -> index.addWords("world"));
+    }
+
+    @Test
+    void matchesBruteForceDistance() {
+        Random random = new Random(7);
+        List<String> vocabulary = new ArrayList<>();
+        SpellingIndex index = new SpellingIndex(2);
+        for (int i = 0; i < 3_000; i++) {
+            String word = randomWord(random, 4 + random.nextInt(9));
+            vocabulary.add(word);
+            index.addWords(word);
+        }
+        index.build();
+
+        for (int i = 0; i < 5_000; i++) {
+            String query = mutate(random, vocabulary.get(random.nextInt(vocabulary.size())));
+            int allowed = query.length() <= 3 ? 0 : query.length() <= 7 ? 1 : Math.min(2, query.length() / 4);
+
+            int best = Integer.MAX_VALUE;
+            for (String word : vocabulary) {
+                best = Math.min(best, distance(query, word));
+            }
+            String suggestion = suggest(index, query);
+            if (best == 0 || best > allowed) {
+                assertNull(suggestion, query);
+            } else {
+                assertNotNull(suggestion, query);
+                assertEquals(best, distance(query, suggestion), query + " -> " + suggestion);
+            }
+        }
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    // Up to two random deletions, insertions, substitutions or transpositions
+    private static String mutate(Random random, String word) {
+        StringBuilder mutated = new StringBuilder(word);
+        int edits = random.nextInt(3);
+        for (int e = 0; e < edits && mutated.length() > 1; e++) {
+            int position = random.nextInt(mutated.length());
+            char letter = (char) ('a' + random.nextInt(26));
+            switch (random.nextInt(4)) {
+                case 0 -> mutated.deleteCharAt(position);
+                case 1 -> mutated.insert(position, letter);
+                case 2 -> mutated.setCharAt(position, letter);
+                default -> {
+                    if (position + 1 < mutated.length()) {
+                        char c = mutated.charAt(position);
+                        mutated.setCharAt(position, mutated.charAt(position + 1));
+                        mutated.setCharAt(position + 1, c);
+                    }
+                }
+            }
+        }
+        return mutated.toString();
+    }
+
+    // Optimal string alignment distance, the metric the index corrects by
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,58 @@
+package chatbot;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SemanticIndex dot products on the incubating Vector API
+ * Kept out of src/ because it only compiles and runs with --add-modules jdk.incubator.vector;
+ * SemanticIndex loads it reflectively when the module is present
+ *
+ * Row bytes are widened into 16-bit lanes filling the preferred vector shape and multiplied
+ * with the query. A product of two components is at most LEVELS^2 (3969), so eight of them
+ * add up in a 16-bit lane before the lanes are widened into 32-bit sums
+ */
+final class VectorDotKernel implements SemanticIndex.DotKernel {
+
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, SHORTS.vectorShape());
+
+    private static final int STEPS_PER_WIDEN = Short.MAX_VALUE / (SemanticIndex.LEVELS * SemanticIndex.LEVELS);
+
+    VectorDotKernel() {
+        // A 64-bit preferred shape means no SIMD worth having; the scalar loop is faster
+        if (SHORTS.vectorBitSize() < 128) {
+            throw new UnsupportedOperationException("Preferred vector shape is only " + SHORTS.vectorBitSize() + " bits");
+        }
+    }
+
+    @Override
+    public int dot(byte[] codes, int base, short[] query, int dimensions) {
+        int lanes = SHORTS.length();
+        int bound = dimensions - dimensions % lanes;
+        IntVector sums = IntVector.zero(INTS);
+        int j = 0;
+        while (j < bound) {
+            int widenAt = Math.min(bound, j + STEPS_PER_WIDEN * lanes);
+            ShortVector products = ShortVector.zero(SHORTS);
+            for (; j < widenAt; j += lanes) {
+                ShortVector row = (ShortVector) ByteVector.fromArray(BYTES, codes, base + j)
+                        .convertShape(VectorOperators.B2S, SHORTS, 0);
+                products = products.add(row.mul(ShortVector.fromArray(SHORTS, query, j)));
+            }
+            sums = sums.add(products.convertShape(VectorOperators.S2I, INTS, 0))
+                    .add(products.convertShape(VectorOperators.S2I, INTS, 1));
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; j < dimensions; j++) {
+            sum += codes[base + j] * query[j];
+        }
+        return sum;
+    }
+}